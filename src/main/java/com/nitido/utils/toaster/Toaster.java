@@ -33,6 +33,11 @@
  *   toasterManager.showToaster( new ImageIcon( "mylogo.gif" ), "A simple toaster with an image" );
  *  }
  * }
+ *
+ * All toasters are animated by a single Swing timer on the event dispatch
+ * thread, and their windows are reused. At most maxVisible toasters are on
+ * the screen at once and at most maxQueued wait for a place; beyond that,
+ * toasters are merged by group into a single "+N more events" toaster.
  */
 package com.nitido.utils.toaster;
 
@@ -43,13 +48,21 @@ import java.awt.GraphicsEnvironment;
 import java.awt.Insets;
 import java.awt.Rectangle;
 import java.awt.Window;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.swing.BorderFactory;
 import javax.swing.Icon;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextArea;
-import javax.swing.JWindow;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.border.EtchedBorder;
 
 /**
@@ -73,14 +86,11 @@ public class Toaster {
     // Show time
     private int displayTime = 3000;
 
-    // Current number of toaster...
-    private int currentNumberOfToaster = 0;
-
-    // Last opened toaster
-    private int maxToaster = 0;
+    // Max number of toasters on the screen at once
+    private int maxVisible = 5;
 
-    // Max number of toasters for the screen
-    private int maxToasterInScreen;
+    // Max number of toasters waiting for a place on the screen
+    private int maxQueued = 20;
 
     // Font used to display message
     private Font font;
@@ -101,6 +111,21 @@ public class Toaster {
     // method always on top start only SINCE JDK 5 !
     boolean useAlwaysOnTop;
 
+    // Timer driving every animation, only running while toasters are shown
+    private final Timer timer;
+
+    // Toasters on the screen, by slot
+    private final List<SingleToaster> visible = new ArrayList<>();
+
+    // Hidden toaster windows, ready to be reused
+    private final Deque<SingleToaster> idle = new ArrayDeque<>();
+
+    // Toasters waiting for a slot
+    private final Deque<Pending> queue = new ArrayDeque<>();
+
+    // Events which overflowed the queue, by group
+    private final Map<String, Pending> overflow = new LinkedHashMap<>();
+
     /**
      * Constructor to initialized toaster component...
      *
@@ -120,11 +145,12 @@ public class Toaster {
         } catch (Exception e) {
             useAlwaysOnTop = false;
         }
-
+        timer = new Timer(stepTime, e -> animate());
     }
 
     /**
-     * Class that represent a single toaster
+     * Class that represent a single toaster window, reused from toaster to
+     * toaster
      *
      * @author daniele piras
      */
@@ -137,6 +163,20 @@ public class Toaster {
         // Text area for the message
         private final JTextArea message = new JTextArea();
 
+        private final JPanel externalPanel = new JPanel(new BorderLayout(1, 1));
+
+        private final JPanel innerPanel = new JPanel(new BorderLayout());
+
+        // Position while on the screen
+        private int posX;
+        private int startY;
+        private int stopY;
+        private int posY;
+
+        // Time to start hiding, 0 while still coming in
+        private long hideAt;
+
+        private boolean hiding;
 
         /***
          * Simple constructor that initialized components...
@@ -149,147 +189,106 @@ public class Toaster {
          * Function to initialized components
          */
         private void initComponents() {
-
-            setSize(toasterWidth, toasterHeight);
-            message.setFont(getToasterMessageFont());
-            JPanel externalPanel = new JPanel(new BorderLayout(1, 1));
-            externalPanel.setBackground(getBorderColor());
-            JPanel innerPanel = new JPanel(new BorderLayout(getMargin(), getMargin()));
-            innerPanel.setBackground(getToasterColor());
-            message.setBackground(getToasterColor());
             message.setMargin(new Insets(2, 2, 2, 2));
             message.setLineWrap(true);
             message.setWrapStyleWord(true);
+            message.setEditable(false);
 
             EtchedBorder etchedBorder = (EtchedBorder) BorderFactory
                     .createEtchedBorder();
             externalPanel.setBorder(etchedBorder);
 
             externalPanel.add(innerPanel);
-            message.setForeground(getMessageColor());
             innerPanel.add(iconLabel, BorderLayout.WEST);
             innerPanel.add(message, BorderLayout.CENTER);
             getContentPane().add(externalPanel);
         }
 
-
         /***
-         * Start toaster animation...
+         * Applies the current settings of the toaster manager, which may
+         * have changed since the window was last used
          */
-        public void animate() {
-            (new Animation(this)).start();
-        }
-
-    }
-
-    /***
-     * Class that manage the animation
-     */
-    class Animation extends Thread {
-        SingleToaster toaster;
-
-        public Animation(SingleToaster toaster) {
-            this.toaster = toaster;
+        private void applySettings() {
+            setSize(toasterWidth, toasterHeight);
+            message.setFont(getToasterMessageFont());
+            externalPanel.setBackground(getBorderColor());
+            ((BorderLayout) innerPanel.getLayout()).setHgap(getMargin());
+            ((BorderLayout) innerPanel.getLayout()).setVgap(getMargin());
+            innerPanel.setBackground(getToasterColor());
+            message.setBackground(getToasterColor());
+            message.setForeground(getMessageColor());
         }
 
-
-        /**
-         * Animate vertically the toaster. The toaster could be moved from bottom to upper or to upper to bottom
+        /***
+         * Moves one step towards the target position
          *
-         * @param posX position x coordinate
-         * @param fromY position from y coordinate
-         * @param toY position to y coordinate
-         * @throws InterruptedException
+         * @return true once the target is reached
          */
-        protected void animateVertically(int posX, int fromY, int toY) throws InterruptedException {
-
-            toaster.setLocation(posX, fromY);
-            if (toY < fromY) {
-                for (int i = fromY; i > toY; i -= step) {
-                    toaster.setLocation(posX, i);
-                    Thread.sleep(stepTime);
-                }
+        private boolean moveTowards(int toY) {
+            if (posY < toY) {
+                posY = Math.min(posY + step, toY);
             } else {
-                for (int i = fromY; i < toY; i += step) {
-                    toaster.setLocation(posX, i);
-                    Thread.sleep(stepTime);
-                }
+                posY = Math.max(posY - step, toY);
             }
-            toaster.setLocation(posX, toY);
+            setLocation(posX, posY);
+            return posY == toY;
         }
+    }
 
-        public void run() {
-            try {
-                boolean animateFromBottom = true;
-                GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-                Rectangle screenRect = ge.getMaximumWindowBounds();
-
-                int screenHeight = screenRect.height;
-
-                int startYPosition;
-                int stopYPosition;
-
-                if (screenRect.y > 0) {
-                    animateFromBottom = false; // Animate from top!
-                }
-
-                maxToasterInScreen = screenHeight / toasterHeight;
-
-                int posX = screenRect.width - toasterWidth - 1;
-
-                toaster.setLocation(posX, screenHeight);
-                toaster.setVisible(true);
-                if (useAlwaysOnTop) {
-                    toaster.setAlwaysOnTop(true);
-                }
-
-                if (animateFromBottom) {
-                    startYPosition = screenHeight;
-                    stopYPosition = startYPosition - toasterHeight - 1;
-                    if (currentNumberOfToaster > 0) {
-                        stopYPosition = stopYPosition - (maxToaster % maxToasterInScreen * toasterHeight);
-                    } else {
-                        maxToaster = 0;
-                    }
-                } else {
-                    startYPosition = screenRect.y - toasterHeight;
-                    stopYPosition = screenRect.y;
-
-                    if (currentNumberOfToaster > 0) {
-                        stopYPosition = stopYPosition + (maxToaster % maxToasterInScreen * toasterHeight);
-                    } else {
-                        maxToaster = 0;
-                    }
-                }
-
-                currentNumberOfToaster++;
-                maxToaster++;
-
-
-                animateVertically(posX, startYPosition, stopYPosition);
-                Thread.sleep(displayTime);
-                animateVertically(posX, stopYPosition, startYPosition);
-
-                currentNumberOfToaster--;
-                toaster.setVisible(false);
-                toaster.dispose();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+    /***
+     * A toaster waiting for a place on the screen
+     */
+    private static class Pending {
+        final Icon icon;
+        final String msg;
+        final String group;
+        int count;
+
+        Pending(Icon icon, String msg, String group, int count) {
+            this.icon = icon;
+            this.msg = msg;
+            this.group = group;
+            this.count = count;
         }
     }
 
-
     /**
      * Show a toaster with the specified message and the associated icon.
      */
     public void showToaster(Icon icon, String msg) {
-        SingleToaster singleToaster = new SingleToaster();
-        if (icon != null) {
-            singleToaster.iconLabel.setIcon(icon);
+        showToaster(icon, msg, null, 1);
+    }
+
+    /**
+     * Show a toaster with the specified message and the associated icon. When
+     * too many toasters are waiting, toasters of the same group are merged
+     * into one counting their events. May be called from any thread.
+     *
+     * @param group - the group of the toaster, such as the path the events
+     *              happened under, or null
+     * @param count - the number of events the toaster tells of
+     */
+    public void showToaster(Icon icon, String msg, String group, int count) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> showToaster(icon, msg, group, count));
+            return;
+        }
+        Pending pending = new Pending(icon, msg, group, count);
+        if (queue.isEmpty() && overflow.isEmpty() && show(pending)) {
+            return;
+        }
+        if (queue.size() < maxQueued) {
+            queue.add(pending);
+            return;
+        }
+        // keep the overflow itself bounded, merging the groups beyond it
+        String key = group == null || (overflow.size() >= maxQueued && !overflow.containsKey(group)) ? "" : group;
+        Pending merged = overflow.get(key);
+        if (merged == null) {
+            overflow.put(key, new Pending(icon, null, key.isEmpty() ? null : key, count));
+        } else {
+            merged.count += count;
         }
-        singleToaster.message.setText(msg);
-        singleToaster.animate();
     }
 
     /**
@@ -299,6 +298,102 @@ public class Toaster {
         showToaster(null, msg);
     }
 
+    /***
+     * Puts a toaster in a free slot on the screen
+     *
+     * @return false if there is no free slot
+     */
+    private boolean show(Pending pending) {
+        Rectangle screenRect = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+        int slots = Math.max(Math.min(maxVisible, screenRect.height / toasterHeight), 1);
+        int slot = visible.indexOf(null);
+        if (slot < 0) {
+            if (visible.size() >= slots) {
+                return false;
+            }
+            slot = visible.size();
+            visible.add(null);
+        }
+        SingleToaster toaster = idle.isEmpty() ? new SingleToaster() : idle.poll();
+        toaster.applySettings();
+        toaster.iconLabel.setIcon(pending.icon);
+        toaster.message.setText(pending.msg != null ? pending.msg
+                : "+" + pending.count + " more events" + (pending.group != null ? " on " + pending.group : ""));
+
+        toaster.posX = screenRect.x + screenRect.width - toasterWidth - 1;
+        if (screenRect.y > 0) {
+            // Animate from top!
+            toaster.startY = screenRect.y - toasterHeight;
+            toaster.stopY = screenRect.y + slot * toasterHeight;
+        } else {
+            toaster.startY = screenRect.y + screenRect.height;
+            toaster.stopY = toaster.startY - toasterHeight - 1 - slot * toasterHeight;
+        }
+        toaster.posY = toaster.startY;
+        toaster.hideAt = 0;
+        toaster.hiding = false;
+        toaster.setLocation(toaster.posX, toaster.posY);
+        toaster.setVisible(true);
+        if (useAlwaysOnTop) {
+            toaster.setAlwaysOnTop(true);
+        }
+        visible.set(slot, toaster);
+        timer.setDelay(stepTime);
+        timer.start();
+        return true;
+    }
+
+    /***
+     * Advances every toaster on the screen by one step, called by the timer
+     */
+    private void animate() {
+        long now = System.currentTimeMillis();
+        for (int slot = 0; slot < visible.size(); slot++) {
+            SingleToaster toaster = visible.get(slot);
+            if (toaster == null) {
+                continue;
+            }
+            if (toaster.hiding) {
+                if (toaster.moveTowards(toaster.startY)) {
+                    toaster.setVisible(false);
+                    toaster.iconLabel.setIcon(null);
+                    visible.set(slot, null);
+                    if (idle.size() < maxVisible) {
+                        idle.add(toaster);
+                    } else {
+                        toaster.dispose();
+                    }
+                }
+            } else if (toaster.hideAt == 0) {
+                if (toaster.moveTowards(toaster.stopY)) {
+                    toaster.hideAt = now + displayTime;
+                }
+            } else if (now >= toaster.hideAt) {
+                toaster.hiding = true;
+            }
+        }
+        while (!visible.isEmpty() && visible.get(visible.size() - 1) == null) {
+            visible.remove(visible.size() - 1);
+        }
+        showWaiting();
+        if (visible.isEmpty()) {
+            timer.stop();
+        }
+    }
+
+    /***
+     * Moves waiting toasters into the free slots, queued ones first
+     */
+    private void showWaiting() {
+        while (!queue.isEmpty() && show(queue.peek())) {
+            queue.poll();
+        }
+        Iterator<Pending> merged = overflow.values().iterator();
+        while (queue.isEmpty() && merged.hasNext() && show(merged.next())) {
+            merged.remove();
+        }
+    }
+
     /**
      * @return Returns the font
      */
@@ -457,4 +552,36 @@ public class Toaster {
     public void setToasterWidth(int toasterWidth) {
         this.toasterWidth = toasterWidth;
     }
+
+
+    /**
+     * @return Returns the max number of toasters on the screen at once.
+     */
+    public int getMaxVisible() {
+        return maxVisible;
+    }
+
+
+    /**
+     * @param maxVisible The max number of toasters on the screen at once to set.
+     */
+    public void setMaxVisible(int maxVisible) {
+        this.maxVisible = maxVisible;
+    }
+
+
+    /**
+     * @return Returns the max number of toasters waiting for a place on the screen.
+     */
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+
+    /**
+     * @param maxQueued The max number of toasters waiting for a place on the screen to set.
+     */
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
 }
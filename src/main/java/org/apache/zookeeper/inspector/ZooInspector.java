@@ -19,6 +19,11 @@ package org.apache.zookeeper.inspector;
 
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
@@ -27,6 +32,8 @@ import javax.swing.UIManager;
 import org.apache.zookeeper.inspector.gui.IconResource;
 import org.apache.zookeeper.inspector.gui.ZooInspectorPanel;
 import org.apache.zookeeper.inspector.logger.LoggerFactory;
+import org.apache.zookeeper.inspector.manager.ImportPolicy;
+import org.apache.zookeeper.inspector.manager.ImportResult;
 import org.apache.zookeeper.inspector.manager.ZooInspectorManagerImpl;
 
 /**
@@ -36,12 +43,22 @@ public class ZooInspector {
 	
 	public static IconResource iconResource;
 	
+    private static final String USAGE = "Usage: ZooInspector [export <connectString> <nodePath> <file>"
+            + " | import <connectString> <file> <overwrite|skip|version_check> [<parentPath>]]";
+
     /**
      * @param args
-     *            - not used. The value of these parameters will have no effect
-     *            on the application
+     *            - none to start the user interface, or a command to run
+     *            without it: <code>export connectString nodePath file</code>
+     *            writes the subtree at nodePath to an export file, and
+     *            <code>import connectString file policy [parentPath]</code>
+     *            creates the nodes of an export file, under parentPath or
+     *            where they were exported from
      */
     public static void main(String[] args) {
+        if (args.length > 0) {
+            System.exit(runCommand(args));
+        }
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
             JFrame frame = new JFrame("ZooInspector");
@@ -68,4 +85,70 @@ public class ZooInspector {
                     JOptionPane.ERROR_MESSAGE);
         }
     }
+
+    /**
+     * Runs a command without the user interface, connecting with the default
+     * connection settings apart from the connect string given
+     *
+     * @return the exit status
+     */
+    private static int runCommand(String[] args) {
+        boolean export = args.length == 4 && "export".equals(args[0]);
+        boolean importFile = (args.length == 4 || args.length == 5) && "import".equals(args[0]);
+        if (!export && !importFile) {
+            System.err.println(USAGE);
+            return 2;
+        }
+        ImportPolicy policy = null;
+        if (importFile) {
+            try {
+                policy = ImportPolicy.valueOf(args[3].toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println(USAGE);
+                return 2;
+            }
+        }
+        ZooInspectorManagerImpl manager;
+        try {
+            manager = new ZooInspectorManagerImpl();
+        } catch (IOException e) {
+            LoggerFactory.getLogger().error("Error occurred loading the default connection settings", e);
+            return 1;
+        }
+        Properties connectionProps = new Properties();
+        for (Map.Entry<String, List<String>> entry : manager.getConnectionPropertiesTemplate().getKey().entrySet()) {
+            if (!entry.getValue().isEmpty() && entry.getValue().get(0) != null) {
+                connectionProps.setProperty(entry.getKey(), entry.getValue().get(0));
+            }
+        }
+        connectionProps.setProperty(ZooInspectorManagerImpl.CONNECT_STRING, args[1]);
+        if (!manager.connect(connectionProps)) {
+            System.err.println("Could not connect to " + args[1]);
+            return 1;
+        }
+        try {
+            if (export) {
+                long exported = manager.exportNodes(args[2], new File(args[3]), (done, total) -> {
+                    if (done % 10000 == 0) {
+                        System.err.println("Exported " + done + " nodes");
+                    }
+                });
+                System.out.println("Exported " + exported + " nodes to " + args[3]);
+            } else {
+                ImportResult result = manager.importNodes(new File(args[2]), args.length == 5 ? args[4] : null,
+                        policy, (done, total) -> {
+                            if (done % 10000 == 0) {
+                                System.err.println("Imported " + done + " nodes");
+                            }
+                        });
+                System.out.println(result);
+            }
+            return 0;
+        } catch (Exception e) {
+            LoggerFactory.getLogger().error("Error occurred running " + args[0], e);
+            return 1;
+        } finally {
+            manager.disconnect();
+        }
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.gui;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import org.apache.zookeeper.inspector.manager.NodeSnapshot;
+import org.apache.zookeeper.inspector.manager.ZooInspectorReadOnlyManager;
+
+/**
+ * Loads the {@link NodeSnapshot} of the selected node, latest selection wins.
+ * <p>
+ * A selection made after a quiet period is loaded straight away. Selections
+ * which follow each other faster than {@link #DEBOUNCE_DELAY}, such as when an
+ * arrow key is held down in the tree, are coalesced and only the last one is
+ * loaded once the selection settles. Starting a load cancels the previous
+ * one, and a snapshot is only handed on if its node is still the selected
+ * one. All methods must be called on the event dispatch thread.
+ */
+class SelectionLoadScheduler {
+    /**
+     * The quiet period, in milliseconds, after which the selection is
+     * considered settled
+     */
+    public static final int DEBOUNCE_DELAY = 150;
+
+    private final ZooInspectorReadOnlyManager zooInspectorManager;
+    private final Consumer<NodeSnapshot> snapshotListener;
+    private final Timer debounceTimer;
+    private String pendingNode;
+    private CompletableFuture<NodeSnapshot> currentLoad;
+
+    /**
+     * @param zooInspectorManager - the manager to load snapshots from
+     * @param snapshotListener    - called on the event dispatch thread with the
+     *                            snapshot of the selected node, or null if it
+     *                            could not be read
+     */
+    SelectionLoadScheduler(ZooInspectorReadOnlyManager zooInspectorManager, Consumer<NodeSnapshot> snapshotListener) {
+        this.zooInspectorManager = zooInspectorManager;
+        this.snapshotListener = snapshotListener;
+        this.debounceTimer = new Timer(DEBOUNCE_DELAY, e -> {
+            if (pendingNode != null) {
+                String nodePath = pendingNode;
+                pendingNode = null;
+                load(nodePath);
+            }
+        });
+        this.debounceTimer.setRepeats(false);
+    }
+
+    /**
+     * @param nodePath - the node which has been selected
+     */
+    void schedule(String nodePath) {
+        if (debounceTimer.isRunning()) {
+            cancelLoad();
+            pendingNode = nodePath;
+        } else {
+            load(nodePath);
+        }
+        debounceTimer.restart();
+    }
+
+    /**
+     * Drops any pending or running load, for example when nothing is selected
+     * any more
+     */
+    void cancel() {
+        debounceTimer.stop();
+        pendingNode = null;
+        cancelLoad();
+    }
+
+    private void load(final String nodePath) {
+        cancelLoad();
+        final CompletableFuture<NodeSnapshot> load = zooInspectorManager.getNodeSnapshotAsync(nodePath);
+        currentLoad = load;
+        load.thenAccept(snapshot -> SwingUtilities.invokeLater(() -> {
+            if (currentLoad == load) {
+                currentLoad = null;
+                snapshotListener.accept(snapshot);
+            }
+        }));
+    }
+
+    private void cancelLoad() {
+        if (currentLoad != null) {
+            currentLoad.cancel(false);
+            currentLoad = null;
+        }
+    }
+}
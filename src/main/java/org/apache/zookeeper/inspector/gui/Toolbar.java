@@ -32,7 +32,7 @@ public class Toolbar {
     private final Map<Button, JButton> buttons = new HashMap<>();
 
     private static final Button[] buttonsToToggle = new Button[] {
-        Button.connect, Button.disconnect, Button.refresh, Button.addNode, Button.deleteNode
+        Button.connect, Button.disconnect, Button.refresh, Button.addNode, Button.deleteNode, Button.metrics
     };
 
     public Toolbar(IconResource iconResource) {
@@ -69,6 +69,7 @@ public class Toolbar {
         refresh("Refresh",IconResource.ICON_REFRESH,false),
         addNode("Add Node",IconResource.ICON_DOCUMENT_ADD,false),
         deleteNode("Delete Node",IconResource.ICON_TRASH,false),
+        metrics("Show Request Metrics",IconResource.ICON_INFORMATION,false),
         nodeViewers("Change Node Viewers",IconResource.ICON_ChangeNodeViewers,true),
         about("About ZooInspector",IconResource.ICON_HELP_ABOUT,true);
 
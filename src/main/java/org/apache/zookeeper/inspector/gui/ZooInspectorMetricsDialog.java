@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Frame;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import org.apache.zookeeper.inspector.manager.ZooInspectorReadOnlyManager;
+import org.apache.zookeeper.metrics.LatencyHistogram;
+import org.apache.zookeeper.metrics.OpMetrics;
+import org.apache.zookeeper.metrics.ZooKeeperMetrics;
+
+/**
+ * A {@link JDialog} showing the requests sent by the current connection, one
+ * row per type of request, refreshed while it is open
+ */
+public class ZooInspectorMetricsDialog extends JDialog {
+    /**
+     * The time, in milliseconds, between refreshes
+     */
+    public static final int REFRESH_INTERVAL = 1000;
+
+    private final ZooInspectorReadOnlyManager zooInspectorManager;
+    private final MetricsTableModel model = new MetricsTableModel();
+    private final Timer refreshTimer;
+
+    /**
+     * @param frame
+     *            - the Frame from which the dialog is displayed
+     * @param zooInspectorManager
+     *            - the manager to read the metrics from
+     */
+    public ZooInspectorMetricsDialog(Frame frame, ZooInspectorReadOnlyManager zooInspectorManager) {
+        super(frame);
+        this.zooInspectorManager = zooInspectorManager;
+        this.refreshTimer = new Timer(REFRESH_INTERVAL, e -> refresh());
+        this.setLayout(new BorderLayout());
+        this.setTitle("Request Metrics");
+        this.setModal(false);
+        this.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        JTable table = new JTable(model);
+        table.getColumnModel().getColumn(0).setPreferredWidth(100);
+        JScrollPane scroller = new JScrollPane(table);
+        scroller.setPreferredSize(new Dimension(900, 220));
+        JPanel buttonsPanel = new JPanel();
+        buttonsPanel.setLayout(new FlowLayout(FlowLayout.RIGHT, 10, 10));
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+        buttonsPanel.add(closeButton);
+        this.add(scroller, BorderLayout.CENTER);
+        this.add(buttonsPanel, BorderLayout.SOUTH);
+        this.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                refreshTimer.stop();
+            }
+        });
+        this.pack();
+        refresh();
+        refreshTimer.start();
+    }
+
+    private void refresh() {
+        ZooKeeperMetrics metrics = zooInspectorManager.getMetrics();
+        if (metrics != null) {
+            model.update(metrics.getAll());
+        }
+    }
+
+    /**
+     * The rows of the table, one per type of request, as last read
+     */
+    private static class MetricsTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = { "Request", "Calls", "Errors", "Retries", "Bytes Sent",
+                "Bytes Received", "Mean (ms)", "p50 (ms)", "p90 (ms)", "p99 (ms)", "p99.9 (ms)", "Max (ms)" };
+        private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+        private Object[][] rows = new Object[0][];
+
+        void update(List<OpMetrics> metrics) {
+            Object[][] updated = new Object[metrics.size()][];
+            for (int i = 0; i < updated.length; i++) {
+                OpMetrics op = metrics.get(i);
+                LatencyHistogram latency = op.getLatency();
+                Object[] row = new Object[COLUMNS.length];
+                row[0] = op.getType().toString();
+                row[1] = op.getCalls();
+                row[2] = op.getErrors();
+                row[3] = op.getRetries();
+                row[4] = op.getBytesSent();
+                row[5] = op.getBytesReceived();
+                row[6] = millis(latency.getMean());
+                for (int j = 0; j < PERCENTILES.length; j++) {
+                    row[7 + j] = millis(latency.getValueAtPercentile(PERCENTILES[j]));
+                }
+                row[11] = millis(latency.getMax());
+                updated[i] = row;
+            }
+            boolean sameRows = updated.length == rows.length;
+            rows = updated;
+            if (sameRows) {
+                fireTableRowsUpdated(0, rows.length - 1);
+            } else {
+                fireTableDataChanged();
+            }
+        }
+
+        private static double millis(double micros) {
+            return Math.round(micros / 10) / 100.0;
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.length;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 0 ? String.class : column < 6 ? Long.class : Double.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return rows[row][column];
+        }
+    }
+}
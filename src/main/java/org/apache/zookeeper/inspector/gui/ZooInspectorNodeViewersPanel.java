@@ -30,6 +30,7 @@ import javax.swing.event.TreeSelectionListener;
 import javax.swing.tree.TreePath;
 
 import org.apache.zookeeper.inspector.gui.nodeviewer.ZooInspectorNodeViewer;
+import org.apache.zookeeper.inspector.manager.NodeSnapshot;
 import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
 import org.apache.zookeeper.inspector.manager.ZooInspectorNodeManager;
 
@@ -44,6 +45,8 @@ public class ZooInspectorNodeViewersPanel extends JPanel implements
     private final JTabbedPane tabbedPane;
     private final List<String> selectedNodes = new ArrayList<String>();
     private final ZooInspectorNodeManager zooInspectorManager;
+    private final SelectionLoadScheduler selectionLoader;
+    private NodeSnapshot selectedSnapshot;
 
     /**
      * @param zooInspectorManager
@@ -55,6 +58,7 @@ public class ZooInspectorNodeViewersPanel extends JPanel implements
             ZooInspectorNodeManager zooInspectorManager,
             List<ZooInspectorNodeViewer> nodeVeiwers) {
         this.zooInspectorManager = zooInspectorManager;
+        this.selectionLoader = new SelectionLoadScheduler(zooInspectorManager, this::snapshotLoaded);
         this.setLayout(new BorderLayout());
         tabbedPane = new JTabbedPane(JTabbedPane.TOP,
                 JTabbedPane.WRAP_TAB_LAYOUT);
@@ -86,7 +90,7 @@ public class ZooInspectorNodeViewersPanel extends JPanel implements
         int index = this.tabbedPane.getSelectedIndex();
         if (index != -1 && this.needsReload.get(index)) {
             ZooInspectorNodeViewer viewer = this.nodeVeiwers.get(index);
-            viewer.nodeSelectionChanged(selectedNodes);
+            viewer.nodeSelectionChanged(new ArrayList<String>(selectedNodes), selectedSnapshot);
             this.needsReload.set(index, false);
         }
     }
@@ -121,6 +125,16 @@ public class ZooInspectorNodeViewersPanel extends JPanel implements
                 selectedNodes.add(sb.toString());
             }
         }
+        if (selectedNodes.isEmpty()) {
+            selectionLoader.cancel();
+            snapshotLoaded(null);
+        } else {
+            selectionLoader.schedule(selectedNodes.get(0));
+        }
+    }
+
+    private void snapshotLoaded(NodeSnapshot snapshot) {
+        selectedSnapshot = snapshot;
         for (int i = 0; i < needsReload.size(); i++) {
             this.needsReload.set(i, true);
         }
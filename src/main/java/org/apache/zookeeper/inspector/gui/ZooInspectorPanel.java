@@ -42,6 +42,8 @@ public class ZooInspectorPanel extends JPanel implements NodeViewersChangeListen
     private final Toolbar toolbar;
     private final ZooInspectorNodeViewersPanel nodeViewersPanel;
     private final ZooInspectorTreeViewer treeViewer;
+    private final ZooInspectorSearchPanel searchPanel;
+    private final ZooInspectorSessionPanel sessionPanel;
     private final ZooInspectorManager zooInspectorManager;
 
     private final List<NodeViewersChangeListener> listeners = new ArrayList<>();
@@ -73,6 +75,8 @@ public class ZooInspectorPanel extends JPanel implements NodeViewersChangeListen
         }
         nodeViewersPanel = new ZooInspectorNodeViewersPanel(zooInspectorManager, nodeViewers);
         treeViewer = new ZooInspectorTreeViewer(zooInspectorManager, nodeViewersPanel, iconResource);
+        searchPanel = new ZooInspectorSearchPanel(zooInspectorManager, treeViewer);
+        sessionPanel = new ZooInspectorSessionPanel(zooInspectorManager);
         this.setLayout(new BorderLayout());
 
         toolbar.addActionListener(Toolbar.Button.connect, e -> {
@@ -87,6 +91,12 @@ public class ZooInspectorPanel extends JPanel implements NodeViewersChangeListen
         toolbar.addActionListener(Toolbar.Button.refresh, e -> treeViewer.refreshView());
         toolbar.addActionListener(Toolbar.Button.addNode, new AddNodeAction(this, treeViewer, zooInspectorManager));
         toolbar.addActionListener(Toolbar.Button.deleteNode, new DeleteNodeAction(this, treeViewer, zooInspectorManager));
+        toolbar.addActionListener(Toolbar.Button.metrics, e -> {
+            ZooInspectorMetricsDialog metricsDialog = new ZooInspectorMetricsDialog(JOptionPane.getRootFrame(),
+                    zooInspectorManager);
+            metricsDialog.setLocationRelativeTo(this);
+            metricsDialog.setVisible(true);
+        });
 
 
         toolbar.addActionListener(Toolbar.Button.nodeViewers, e -> {
@@ -102,10 +112,13 @@ public class ZooInspectorPanel extends JPanel implements NodeViewersChangeListen
             zicpd.setVisible(true);
         });
         JScrollPane treeScroller = new JScrollPane(treeViewer);
-        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, treeScroller, nodeViewersPanel);
+        JSplitPane treeSplitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, treeScroller, searchPanel);
+        treeSplitPane.setResizeWeight(0.75);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, treeSplitPane, nodeViewersPanel);
         splitPane.setResizeWeight(0.25);
         this.add(splitPane, BorderLayout.CENTER);
         this.add(toolbar.getJToolBar(), BorderLayout.NORTH);
+        this.add(sessionPanel, BorderLayout.SOUTH);
     }
 
     /**
@@ -125,6 +138,7 @@ public class ZooInspectorPanel extends JPanel implements NodeViewersChangeListen
                 try {
                     if (get()) {
                         treeViewer.refreshView();
+                        sessionPanel.start();
                         toolbar.toggleButtons(true);
                     } else {
                         JOptionPane.showMessageDialog(ZooInspectorPanel.this,
@@ -166,6 +180,8 @@ public class ZooInspectorPanel extends JPanel implements NodeViewersChangeListen
                 try {
                     if (get()) {
                         treeViewer.clearView();
+                        searchPanel.clear();
+                        sessionPanel.clear();
                         toolbar.toggleButtons(false);
                     }
                 } catch (InterruptedException | ExecutionException e) {
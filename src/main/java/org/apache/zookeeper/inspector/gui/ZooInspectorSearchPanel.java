@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.gui;
+
+import java.awt.BorderLayout;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.swing.DefaultListModel;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.JToolBar;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingWorker;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import org.apache.zookeeper.inspector.logger.LoggerFactory;
+import org.apache.zookeeper.inspector.manager.SearchIndex;
+import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
+
+/**
+ * A {@link JPanel} for finding nodes by name or data. The subtree of the
+ * selected node, or the whole tree, is first indexed into a
+ * {@link SearchIndex}, which then stays up to date; queries run against the
+ * index as they are typed. Double clicking a result selects the node in the
+ * {@link ZooInspectorTreeViewer}.
+ */
+public class ZooInspectorSearchPanel extends JPanel {
+    /**
+     * The most results listed for a query
+     */
+    public static final int MAX_RESULTS = 1000;
+
+    private final ZooInspectorManager zooInspectorManager;
+    private final ZooInspectorTreeViewer treeViewer;
+    private final JTextField queryField = new JTextField();
+    private final JCheckBox regexBox = new JCheckBox("Regex");
+    private final JButton indexButton = new JButton("Index");
+    private final JLabel statusLabel = new JLabel("Index the tree to search it");
+    private final DefaultListModel<String> results = new DefaultListModel<>();
+    private SearchIndex searchIndex;
+    private SwingWorker<SearchIndex, Long> indexing;
+    private SwingWorker<List<String>, Void> searching;
+
+    /**
+     * @param zooInspectorManager - the {@link ZooInspectorManager} for the application
+     * @param treeViewer          - the {@link ZooInspectorTreeViewer} to show the
+     *                            nodes found in
+     */
+    public ZooInspectorSearchPanel(ZooInspectorManager zooInspectorManager, ZooInspectorTreeViewer treeViewer) {
+        this.zooInspectorManager = zooInspectorManager;
+        this.treeViewer = treeViewer;
+        this.setLayout(new BorderLayout());
+        JToolBar toolbar = new JToolBar();
+        toolbar.setFloatable(false);
+        toolbar.add(queryField);
+        toolbar.add(regexBox);
+        toolbar.add(indexButton);
+        indexButton.setToolTipText("Index the selected node's subtree, or the whole tree if none is selected");
+        indexButton.addActionListener(e -> buildIndex());
+        queryField.addActionListener(e -> search());
+        queryField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchAsTyped();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchAsTyped();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchAsTyped();
+            }
+        });
+        regexBox.addActionListener(e -> search());
+        final JList<String> resultList = new JList<>(results);
+        resultList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        resultList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && resultList.getSelectedValue() != null) {
+                    ZooInspectorSearchPanel.this.treeViewer.selectNode(resultList.getSelectedValue());
+                }
+            }
+        });
+        this.add(toolbar, BorderLayout.NORTH);
+        this.add(new JScrollPane(resultList), BorderLayout.CENTER);
+        this.add(statusLabel, BorderLayout.SOUTH);
+    }
+
+    /**
+     * Drops the index and the results, for example on disconnecting
+     */
+    public void clear() {
+        if (indexing != null) {
+            indexing.cancel(true);
+            indexing = null;
+        }
+        searching = null;
+        searchIndex = null;
+        results.clear();
+        indexButton.setEnabled(true);
+        statusLabel.setText("Index the tree to search it");
+    }
+
+    private void buildIndex() {
+        List<String> selectedNodes = treeViewer.getSelectedNodes();
+        final String nodePath = selectedNodes.size() == 1 ? selectedNodes.get(0) : "/";
+        clear();
+        indexButton.setEnabled(false);
+        statusLabel.setText("Indexing " + nodePath + "...");
+        SwingWorker<SearchIndex, Long> worker = new SwingWorker<SearchIndex, Long>() {
+
+            @Override
+            protected SearchIndex doInBackground() throws Exception {
+                return zooInspectorManager.buildSearchIndex(nodePath, (done, total) -> publish(done));
+            }
+
+            @Override
+            protected void process(List<Long> chunks) {
+                if (indexing == this) {
+                    statusLabel.setText("Indexing " + nodePath + "... " + chunks.get(chunks.size() - 1) + " nodes");
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (indexing != this) {
+                    return;
+                }
+                indexing = null;
+                indexButton.setEnabled(true);
+                try {
+                    searchIndex = get();
+                    long unreadable = searchIndex.getUnreadableCount();
+                    statusLabel.setText("Indexed " + searchIndex.getNodeCount() + " nodes of " + nodePath
+                            + (unreadable > 0 ? ", " + unreadable + " not readable (subtrees left out)" : ""));
+                    search();
+                } catch (CancellationException ignored) {
+                    // cleared while indexing
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    LoggerFactory.getLogger().error("Error occurred indexing node: " + nodePath, ex.getCause());
+                    statusLabel.setText("Indexing failed: " + ex.getCause().getMessage());
+                }
+            }
+        };
+        indexing = worker;
+        worker.execute();
+    }
+
+    private void searchAsTyped() {
+        // regular expressions are matched by a full scan, so only on enter
+        if (!regexBox.isSelected()) {
+            search();
+        }
+    }
+
+    private void search() {
+        final SearchIndex index = searchIndex;
+        if (index == null) {
+            return;
+        }
+        final String query = queryField.getText();
+        if (query.trim().isEmpty()) {
+            searching = null;
+            results.clear();
+            return;
+        }
+        final Pattern pattern;
+        try {
+            pattern = regexBox.isSelected() ? Pattern.compile(query) : null;
+        } catch (PatternSyntaxException ex) {
+            statusLabel.setText("Invalid regular expression: " + ex.getDescription());
+            return;
+        }
+        SwingWorker<List<String>, Void> worker = new SwingWorker<List<String>, Void>() {
+            private long elapsedNanos;
+
+            @Override
+            protected List<String> doInBackground() {
+                long start = System.nanoTime();
+                List<String> found = pattern != null ? index.searchRegex(pattern, MAX_RESULTS)
+                        : index.search(query, MAX_RESULTS);
+                elapsedNanos = System.nanoTime() - start;
+                return found;
+            }
+
+            @Override
+            protected void done() {
+                if (searching != this) {
+                    // a later query is running
+                    return;
+                }
+                searching = null;
+                try {
+                    List<String> found = get();
+                    results.clear();
+                    for (String path : found) {
+                        results.addElement(path);
+                    }
+                    statusLabel.setText((found.size() < MAX_RESULTS ? found.size() + "" : "First " + MAX_RESULTS)
+                            + " matches in " + index.getNodeCount() + " nodes, "
+                            + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms");
+                } catch (CancellationException ignored) {
+                    // cleared while searching
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    LoggerFactory.getLogger().error("Error occurred searching for: " + query, ex.getCause());
+                    statusLabel.setText("Search failed: " + ex.getCause().getMessage());
+                }
+            }
+        };
+        searching = worker;
+        worker.execute();
+    }
+}
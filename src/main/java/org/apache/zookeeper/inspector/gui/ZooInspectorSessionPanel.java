@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.gui;
+
+import java.awt.BorderLayout;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.Timer;
+
+import org.apache.zookeeper.inspector.manager.ZooInspectorReadOnlyManager;
+
+/**
+ * A {@link JPanel} showing the state of the current session, including the
+ * number of watches held against the watch budget, refreshed while connected
+ */
+public class ZooInspectorSessionPanel extends JPanel {
+    /**
+     * The time, in milliseconds, between refreshes
+     */
+    public static final int REFRESH_INTERVAL = 1000;
+
+    private final ZooInspectorReadOnlyManager zooInspectorManager;
+    private final JLabel sessionLabel = new JLabel(" ");
+    private final Timer refreshTimer;
+
+    /**
+     * @param zooInspectorManager - the manager to read the session state from
+     */
+    public ZooInspectorSessionPanel(ZooInspectorReadOnlyManager zooInspectorManager) {
+        this.zooInspectorManager = zooInspectorManager;
+        this.refreshTimer = new Timer(REFRESH_INTERVAL, e -> refresh());
+        this.setLayout(new BorderLayout());
+        this.setBorder(BorderFactory.createEmptyBorder(2, 4, 2, 4));
+        this.add(sessionLabel, BorderLayout.CENTER);
+    }
+
+    /**
+     * Starts showing the state of the session just connected
+     */
+    public void start() {
+        refresh();
+        refreshTimer.start();
+    }
+
+    /**
+     * Stops refreshing and clears the panel
+     */
+    public void clear() {
+        refreshTimer.stop();
+        sessionLabel.setText(" ");
+    }
+
+    private void refresh() {
+        Map<String, String> sessionMeta = zooInspectorManager.getSessionMeta();
+        StringJoiner text = new StringJoiner("   ");
+        for (Map.Entry<String, String> entry : sessionMeta.entrySet()) {
+            text.add(entry.getKey() + ": " + entry.getValue());
+        }
+        sessionLabel.setText(text.length() == 0 ? " " : text.toString());
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Frame;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableRowSorter;
+
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.inspector.manager.NodeRecord;
+import org.apache.zookeeper.inspector.manager.TopNodes;
+
+/**
+ * A {@link JDialog} listing the nodes with the most data and the nodes with
+ * the most children found in a subtree. Double clicking a node, or selecting
+ * it and pressing Show in Tree, selects it in the {@link ZooInspectorTreeViewer}.
+ */
+public class ZooInspectorTopNodesDialog extends JDialog {
+    private static final int DATA_LENGTH_COLUMN = 1;
+    private static final int NUM_CHILDREN_COLUMN = 2;
+
+    private final ZooInspectorTreeViewer treeViewer;
+    private final JTabbedPane tabs = new JTabbedPane();
+
+    /**
+     * @param frame
+     *            - the Frame from which the dialog is displayed
+     * @param treeViewer
+     *            - the {@link ZooInspectorTreeViewer} to show the nodes in
+     * @param topNodes
+     *            - the nodes to list
+     */
+    public ZooInspectorTopNodesDialog(Frame frame, ZooInspectorTreeViewer treeViewer, TopNodes topNodes) {
+        super(frame);
+        this.treeViewer = treeViewer;
+        this.setLayout(new BorderLayout());
+        this.setTitle("Largest Nodes in " + topNodes.getNodePath());
+        this.setModal(false);
+        tabs.addTab("Largest Data", createTable(topNodes.getLargestNodes(), DATA_LENGTH_COLUMN));
+        tabs.addTab("Most Children", createTable(topNodes.getWidestNodes(), NUM_CHILDREN_COLUMN));
+        tabs.setPreferredSize(new Dimension(700, 400));
+        JPanel buttonsPanel = new JPanel();
+        buttonsPanel.setLayout(new FlowLayout(FlowLayout.RIGHT, 10, 10));
+        JButton showButton = new JButton("Show in Tree");
+        showButton.addActionListener(e -> showSelectedNode());
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+        buttonsPanel.add(showButton);
+        buttonsPanel.add(closeButton);
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(new JLabel(" Scanned " + topNodes.getScanned() + " nodes"
+                + (topNodes.getUnreadable() > 0 ? ", " + topNodes.getUnreadable()
+                        + " not readable (subtrees left out)" : "")), BorderLayout.WEST);
+        southPanel.add(buttonsPanel, BorderLayout.EAST);
+        this.add(tabs, BorderLayout.CENTER);
+        this.add(southPanel, BorderLayout.SOUTH);
+        this.pack();
+    }
+
+    private JScrollPane createTable(List<NodeRecord> nodes, int sortColumn) {
+        NodeTableModel model = new NodeTableModel(nodes);
+        final JTable table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        TableRowSorter<NodeTableModel> sorter = new TableRowSorter<>(model);
+        sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(sortColumn, SortOrder.DESCENDING)));
+        table.setRowSorter(sorter);
+        table.getColumnModel().getColumn(0).setPreferredWidth(400);
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    showSelectedNode();
+                }
+            }
+        });
+        JScrollPane scroller = new JScrollPane(table);
+        scroller.putClientProperty(JTable.class, table);
+        return scroller;
+    }
+
+    private void showSelectedNode() {
+        JTable table = (JTable) ((JScrollPane) tabs.getSelectedComponent()).getClientProperty(JTable.class);
+        int row = table.getSelectedRow();
+        if (row >= 0) {
+            treeViewer.selectNode((String) table.getModel().getValueAt(table.convertRowIndexToModel(row), 0));
+        }
+    }
+
+    /**
+     * The rows of a table, one per node
+     */
+    private static class NodeTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = { "Path", "Data Length", "Number of Children", "Ephemeral",
+                "Last Modified Time" };
+        private static final Class<?>[] COLUMN_CLASSES = { String.class, Integer.class, Integer.class,
+                Boolean.class, Date.class };
+
+        private final List<NodeRecord> nodes;
+
+        NodeTableModel(List<NodeRecord> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public int getRowCount() {
+            return nodes.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return COLUMN_CLASSES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            NodeRecord node = nodes.get(row);
+            Stat stat = node.getStat();
+            switch (column) {
+            case 0:
+                return node.getPath();
+            case 1:
+                return stat.getDataLength();
+            case 2:
+                return stat.getNumChildren();
+            case 3:
+                return stat.getEphemeralOwner() != 0;
+            default:
+                return new Date(stat.getMtime());
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.zookeeper.inspector.gui;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Component;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
@@ -26,10 +27,9 @@ import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.LinkedHashSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import javax.swing.ImageIcon;
 import javax.swing.JComponent;
@@ -37,16 +37,24 @@ import javax.swing.JMenuItem;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JTree;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 import javax.swing.event.TreeSelectionListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeCellRenderer;
 import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.DefaultTreeSelectionModel;
 import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 
+import org.apache.zookeeper.data.Stat;
 import org.apache.zookeeper.inspector.gui.actions.AddNodeAction;
 import org.apache.zookeeper.inspector.gui.actions.DeleteNodeAction;
+import org.apache.zookeeper.inspector.gui.actions.ExportNodeAction;
+import org.apache.zookeeper.inspector.gui.actions.FindTopNodesAction;
+import org.apache.zookeeper.inspector.gui.actions.ImportNodeAction;
+import org.apache.zookeeper.inspector.manager.ChildrenOrder;
+import org.apache.zookeeper.inspector.manager.NodeEvent;
 import org.apache.zookeeper.inspector.manager.NodeListener;
 import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
 
@@ -59,6 +67,22 @@ import static javax.swing.KeyStroke.getKeyStroke;
  * instance
  */
 public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
+    private static final int UNKNOWN_VERSION = Integer.MIN_VALUE;
+    /**
+     * The most children shown under a node at once. Nodes with more children
+     * show a window of this many, with rows to page to the previous and next
+     * window.
+     */
+    public static final int CHILDREN_PAGE_SIZE = 1000;
+    /**
+     * The most nodes listed in the notification of a batch of changes
+     */
+    public static final int MAX_TOAST_EVENTS = 5;
+    /**
+     * The order children are shown in, which lists sequential nodes such as
+     * queue entries and locks in the order they were created
+     */
+    private static final ChildrenOrder CHILDREN_ORDER = ChildrenOrder.NATURAL;
     private final ZooInspectorManager zooInspectorManager;
     private final JTree tree;
     private final Toaster toasterManager;
@@ -88,6 +112,15 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
         final JMenuItem deleteNode = new JMenuItem("Delete Node");
         deleteNode.addActionListener(new DeleteNodeAction(this, this, zooInspectorManager));
 
+        final JMenuItem exportNode = new JMenuItem("Export Subtree...");
+        exportNode.addActionListener(new ExportNodeAction(this, this, zooInspectorManager));
+
+        final JMenuItem importNode = new JMenuItem("Import Subtree...");
+        importNode.addActionListener(new ImportNodeAction(this, this, zooInspectorManager));
+
+        final JMenuItem findTopNodes = new JMenuItem("Find Largest Nodes...");
+        findTopNodes.addActionListener(new FindTopNodesAction(this, this, zooInspectorManager));
+
         final JMenuItem addNotify = new JMenuItem("Add Change Notification");
         this.toasterManager = new Toaster();
         this.toasterManager.setBorderColor(Color.BLACK);
@@ -95,16 +128,31 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
         this.toasterManager.setToasterColor(Color.WHITE);
         toasterIcon = iconResource.get(IconResource.ICON_INFORMATION,"");
         addNotify.addActionListener(e -> {
-            List<String> selectedNodes = getSelectedNodes();
-            zooInspectorManager.addWatchers(selectedNodes,ZooInspectorTreeViewer.this);
+            final List<String> selectedNodes = getSelectedNodes();
+            // adding a watch waits for the server
+            new SwingWorker<Void, Void>() {
+                @Override
+                protected Void doInBackground() {
+                    zooInspectorManager.addWatchers(selectedNodes, ZooInspectorTreeViewer.this);
+                    return null;
+                }
+            }.execute();
         });
         final JMenuItem removeNotify = new JMenuItem("Remove Change Notification");
         removeNotify.addActionListener(e -> {
-            List<String> selectedNodes = getSelectedNodes();
-            zooInspectorManager.removeWatchers(selectedNodes);
+            final List<String> selectedNodes = getSelectedNodes();
+            // removing a watch waits for the server
+            new SwingWorker<Void, Void>() {
+                @Override
+                protected Void doInBackground() {
+                    zooInspectorManager.removeWatchers(selectedNodes);
+                    return null;
+                }
+            }.execute();
         });
 
         tree = new JTree(new DefaultMutableTreeNode());
+        tree.setSelectionModel(new ZooInspectorTreeSelectionModel());
         tree.setCellRenderer(new ZooInspectorTreeCellRenderer(iconResource));
         tree.setEditable(false);
         tree.getSelectionModel().addTreeSelectionListener(listener);
@@ -118,6 +166,9 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
                     popupMenu.removeAll();
                     popupMenu.add(addNode);
                     popupMenu.add(deleteNode);
+                    popupMenu.add(exportNode);
+                    popupMenu.add(importNode);
+                    popupMenu.add(findTopNodes);
                     popupMenu.add(addNotify);
                     popupMenu.add(removeNotify);
                     popupMenu.show(ZooInspectorTreeViewer.this, e.getX(), e.getY());
@@ -128,35 +179,34 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
     }
 
     /**
-     * Refresh the tree view
+     * Refresh the tree view. The first refresh after connecting builds the
+     * tree; later refreshes keep the current model and only re-list the
+     * children of nodes whose children version changed, so expanded and
+     * selected nodes stay as they are.
      */
     public void refreshView() {
-        final Set<TreePath> expandedNodes = new LinkedHashSet<>();
-        int rowCount = tree.getRowCount();
-        for (int i = 0; i < rowCount; i++) {
-            TreePath path = tree.getPathForRow(i);
-            if (tree.isExpanded(path)) {
-                expandedNodes.add(path);
-            }
+        Object root = tree.getModel().getRoot();
+        if (root instanceof ZooInspectorTreeNode) {
+            ((ZooInspectorTreeNode) root).refresh();
+        } else {
+            tree.setModel(new DefaultTreeModel(new ZooInspectorTreeNode("/", null)));
         }
-        final TreePath[] selectedNodes = tree.getSelectionPaths();
-
-        SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
-            @Override
-            protected Boolean doInBackground() {
-                tree.setModel(new DefaultTreeModel(new ZooInspectorTreeNode("/", null)));
-                return true;
-            }
+    }
 
-            @Override
-            protected void done() {
-                for (TreePath path : expandedNodes) {
-                    tree.expandPath(path);
-                }
-                tree.getSelectionModel().setSelectionPaths(selectedNodes);
-            }
-        };
-        worker.execute();
+    /**
+     * Selects a node in the tree view, expanding its ancestors and paging
+     * through their children as needed. Children which have not been listed
+     * yet are listed first, so the node may only be selected a little later.
+     * If the node no longer exists, its nearest ancestor shown is selected.
+     * 
+     * @param nodePath - the path to the node to select
+     */
+    public void selectNode(String nodePath) {
+        Object root = tree.getModel().getRoot();
+        if (root instanceof ZooInspectorTreeNode) {
+            String[] names = nodePath.equals("/") ? new String[0] : nodePath.substring(1).split("/");
+            ((ZooInspectorTreeNode) root).reveal(names, 0);
+        }
     }
 
     /**
@@ -172,12 +222,172 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
             setOpenIcon(iconResource.get(IconResource.ICON_TREE_OPEN,""));
             setClosedIcon(iconResource.get(IconResource.ICON_TREE_CLOSE,""));
         }
+
+        @Override
+        public Component getTreeCellRendererComponent(JTree tree, Object value, boolean sel, boolean expanded,
+                                                      boolean leaf, int row, boolean hasFocus) {
+            super.getTreeCellRendererComponent(tree, value, sel, expanded, leaf, row, hasFocus);
+            if (value instanceof PlaceholderTreeNode) {
+                setIcon(null);
+                setForeground(Color.GRAY);
+            }
+            return this;
+        }
     }
 
+    /**
+     * A {@link DefaultTreeSelectionModel} which never selects placeholder
+     * rows. Selecting a page row, with the mouse or by moving onto it with the
+     * arrow keys, shows that page instead.
+     */
+    private class ZooInspectorTreeSelectionModel extends DefaultTreeSelectionModel {
+        @Override
+        public void setSelectionPaths(TreePath[] paths) {
+            TreePath[] selectable = withoutPlaceholders(paths);
+            if (selectable != null) {
+                super.setSelectionPaths(selectable);
+            }
+        }
+
+        @Override
+        public void addSelectionPaths(TreePath[] paths) {
+            TreePath[] selectable = withoutPlaceholders(paths);
+            if (selectable != null) {
+                super.addSelectionPaths(selectable);
+            }
+        }
+
+        /**
+         * @return the given paths without the placeholder rows, or null if
+         *         only placeholder rows were given, in which case the
+         *         selection is left as it is
+         */
+        private TreePath[] withoutPlaceholders(TreePath[] paths) {
+            if (paths == null || paths.length == 0) {
+                return paths;
+            }
+            List<TreePath> result = new ArrayList<>(paths.length);
+            for (TreePath path : paths) {
+                if (path == null) {
+                    continue;
+                }
+                Object node = path.getLastPathComponent();
+                if (node instanceof PageTreeNode) {
+                    // the tree is still processing the selection, so only
+                    // change its model afterwards
+                    SwingUtilities.invokeLater(((PageTreeNode) node)::open);
+                } else if (!(node instanceof PlaceholderTreeNode)) {
+                    result.add(path);
+                }
+            }
+            return result.isEmpty() ? null : result.toArray(new TreePath[0]);
+        }
+    }
+
+    /**
+     * A row of the tree which does not stand for a zookeeper node
+     */
+    private abstract static class PlaceholderTreeNode implements TreeNode {
+        protected final TreeNode parent;
+
+        PlaceholderTreeNode(TreeNode parent) {
+            this.parent = parent;
+        }
+
+        public Enumeration<TreeNode> children() {
+            return Collections.emptyEnumeration();
+        }
+
+        public boolean getAllowsChildren() {
+            return false;
+        }
+
+        public TreeNode getChildAt(int childIndex) {
+            throw new ArrayIndexOutOfBoundsException(childIndex);
+        }
+
+        public int getChildCount() {
+            return 0;
+        }
+
+        public int getIndex(TreeNode node) {
+            return -1;
+        }
+
+        public TreeNode getParent() {
+            return parent;
+        }
+
+        public boolean isLeaf() {
+            return true;
+        }
+    }
+
+    /**
+     * The placeholder row shown in place of the children of a node until they
+     * have been retrieved
+     */
+    private static class LoadingTreeNode extends PlaceholderTreeNode {
+        LoadingTreeNode(TreeNode parent) {
+            super(parent);
+        }
+
+        @Override
+        public String toString() {
+            return "loading\u2026";
+        }
+    }
+
+    /**
+     * The row shown before or after the window of children of a node with
+     * more than {@link #CHILDREN_PAGE_SIZE} children, which shows the previous
+     * or next window when selected
+     */
+    private static class PageTreeNode extends PlaceholderTreeNode {
+        private final boolean next;
+        private final String label;
+
+        PageTreeNode(ZooInspectorTreeNode parent, boolean next, int from, int to, int total) {
+            super(parent);
+            this.next = next;
+            this.label = (next ? "next" : "previous") + " page (" + (from + 1) + "-" + to + " of " + total + ")";
+        }
+
+        void open() {
+            ((ZooInspectorTreeNode) parent).showPage(next);
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * A node of the zookeeper tree. All state is read and written on the event
+     * dispatch thread only; children and {@link Stat}s are requested
+     * asynchronously the first time Swing asks for them, and the tree model
+     * is notified once they arrive.
+     * <p>
+     * The names of all children are kept in the ordered list shared with the
+     * {@link ZooInspectorManager}'s cache, but tree nodes are only created for
+     * the window of at most {@link #CHILDREN_PAGE_SIZE} children shown, so
+     * that expanding a node with hundreds of thousands of children stays
+     * cheap.
+     */
     private class ZooInspectorTreeNode implements TreeNode {
         private final String nodePath;
         private final String nodeName;
         private final ZooInspectorTreeNode parent;
+        private List<TreeNode> children;
+        private List<String> childNames = Collections.emptyList();
+        private int windowStart;
+        private boolean childrenRequested;
+        private boolean statRequested;
+        private int numChildren = -1;
+        private boolean allowsChildren = true;
+        private int cversion = UNKNOWN_VERSION;
+        private int childrenVersion = UNKNOWN_VERSION;
 
         public ZooInspectorTreeNode(String nodePath, ZooInspectorTreeNode parent) {
             this.parent = parent;
@@ -195,15 +405,7 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
          * @see javax.swing.tree.TreeNode#children()
          */
         public Enumeration<TreeNode> children() {
-            List<String> children = zooInspectorManager.getChildren(this.nodePath);
-            Collections.sort(children);
-            List<TreeNode> returnChildren = new ArrayList<>();
-            for (String child : children) {
-                returnChildren.add(new ZooInspectorTreeNode((this.nodePath
-                        .equals("/") ? "" : this.nodePath)
-                        + "/" + child, this));
-            }
-            return Collections.enumeration(returnChildren);
+            return Collections.enumeration(getChildList());
         }
 
         /*
@@ -212,7 +414,8 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
          * @see javax.swing.tree.TreeNode#getAllowsChildren()
          */
         public boolean getAllowsChildren() {
-            return zooInspectorManager.isAllowsChildren(nodePath);
+            loadStat();
+            return allowsChildren;
         }
 
         /*
@@ -221,11 +424,7 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
          * @see javax.swing.tree.TreeNode#getChildAt(int)
          */
         public TreeNode getChildAt(int childIndex) {
-            String child = zooInspectorManager.getNodeChild(nodePath, childIndex);
-            if (child != null) {
-                return new ZooInspectorTreeNode((nodePath.equals("/") ? "": this.nodePath) + "/" + child, this);
-            }
-            return null;
+            return getChildList().get(childIndex);
         }
 
         /*
@@ -234,7 +433,7 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
          * @see javax.swing.tree.TreeNode#getChildCount()
          */
         public int getChildCount() {
-            return zooInspectorManager.getNumChildren(nodePath);
+            return getChildList().size();
         }
 
         /*
@@ -243,7 +442,7 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
          * @see javax.swing.tree.TreeNode#getIndex(javax.swing.tree.TreeNode)
          */
         public int getIndex(TreeNode node) {
-            return zooInspectorManager.getNodeIndex(nodePath);
+            return getChildList().indexOf(node);
         }
 
         /*
@@ -261,49 +460,351 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
          * @see javax.swing.tree.TreeNode#isLeaf()
          */
         public boolean isLeaf() {
-            return !zooInspectorManager.hasChildren(nodePath);
+            if (children != null && !isLoading()) {
+                return children.isEmpty();
+            }
+            loadStat();
+            return numChildren == 0;
         }
 
-        @Override
-        public String toString() {
-            return this.nodeName;
+        private boolean isLoading() {
+            return children.size() == 1 && children.get(0) instanceof LoadingTreeNode;
         }
 
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + getOuterType().hashCode();
-            result = prime * result + ((nodePath == null) ? 0 : nodePath.hashCode());
-            result = prime * result + ((parent == null) ? 0 : parent.hashCode());
-            return result;
+        private List<TreeNode> getChildList() {
+            if (children == null) {
+                children = new ArrayList<>(Collections.singletonList(new LoadingTreeNode(this)));
+                loadChildren();
+            }
+            return children;
+        }
+
+        private void loadChildren() {
+            if (!childrenRequested) {
+                childrenRequested = true;
+                childrenVersion = cversion;
+                zooInspectorManager.getChildrenAsync(nodePath, CHILDREN_ORDER).thenAccept(
+                        names -> SwingUtilities.invokeLater(() -> childrenLoaded(names)));
+            }
+        }
+
+        private void loadStat() {
+            if (!statRequested) {
+                statRequested = true;
+                zooInspectorManager.getStatAsync(nodePath).thenAccept(
+                        stat -> SwingUtilities.invokeLater(() -> statLoaded(stat)));
+            }
+        }
+
+        private void childrenLoaded(List<String> names) {
+            DefaultTreeModel model = getModel();
+            if (model == null || !isLoading()) {
+                // already loaded on the way to a node being revealed
+                return;
+            }
+            TreeNode placeholder = children.get(0);
+            if (names != null) {
+                childNames = names;
+            }
+            windowStart = 0;
+            List<TreeNode> loaded = windowRows(Collections.emptyMap());
+            // insert the real children before the placeholder and only then
+            // remove it, so an expanded node is never seen empty and collapsed
+            children.addAll(0, loaded);
+            if (!loaded.isEmpty()) {
+                int[] indices = new int[loaded.size()];
+                for (int i = 0; i < indices.length; i++) {
+                    indices[i] = i;
+                }
+                model.nodesWereInserted(this, indices);
+            }
+            children.remove(loaded.size());
+            model.nodesWereRemoved(this, new int[]{loaded.size()}, new Object[]{placeholder});
+        }
+
+        private void statLoaded(Stat stat) {
+            DefaultTreeModel model = getModel();
+            if (model == null || stat == null) {
+                return;
+            }
+            cversion = stat.getCversion();
+            boolean newAllowsChildren = stat.getEphemeralOwner() == 0;
+            if (numChildren != stat.getNumChildren() || allowsChildren != newAllowsChildren) {
+                numChildren = stat.getNumChildren();
+                allowsChildren = newAllowsChildren;
+                model.nodeChanged(this);
+            }
+        }
+
+        /**
+         * Re-reads the {@link Stat} of this node and of every descendant Swing
+         * has already asked about, and re-lists the children of those whose
+         * children version changed since their children were listed
+         */
+        private void refresh() {
+            if (!statRequested && children == null) {
+                return;
+            }
+            statRequested = true;
+            zooInspectorManager.getStatAsync(nodePath).thenAccept(
+                    stat -> SwingUtilities.invokeLater(() -> refreshed(stat)));
+            if (children != null) {
+                for (TreeNode child : children) {
+                    if (child instanceof ZooInspectorTreeNode) {
+                        ((ZooInspectorTreeNode) child).refresh();
+                    }
+                }
+            }
+        }
+
+        private void refreshed(Stat stat) {
+            statLoaded(stat);
+            if (stat != null && children != null && !isLoading() && stat.getCversion() != childrenVersion
+                    && getModel() != null) {
+                childrenVersion = stat.getCversion();
+                zooInspectorManager.getChildrenAsync(nodePath, CHILDREN_ORDER).thenAccept(
+                        names -> SwingUtilities.invokeLater(() -> mergeChildren(names)));
+            }
+        }
+
+        /**
+         * Applies a fresh, ordered list of child names to the current children,
+         * keeping the nodes of children which still exist. New children are
+         * inserted before the removed ones are dropped, so an expanded node
+         * which only had its children replaced does not collapse.
+         */
+        private void mergeChildren(List<String> names) {
+            DefaultTreeModel model = getModel();
+            if (model == null || names == null || isLoading()) {
+                return;
+            }
+            if (childNames.size() > CHILDREN_PAGE_SIZE || names.size() > CHILDREN_PAGE_SIZE) {
+                mergeWindow(model, names);
+                return;
+            }
+            childNames = names;
+            List<TreeNode> merged = new ArrayList<>(Math.max(children.size(), names.size()));
+            List<Integer> inserted = new ArrayList<>();
+            List<Integer> removed = new ArrayList<>();
+            int i = 0;
+            int j = 0;
+            while (i < children.size() || j < names.size()) {
+                int cmp;
+                if (i == children.size()) {
+                    cmp = 1;
+                } else if (j == names.size()) {
+                    cmp = -1;
+                } else {
+                    cmp = CHILDREN_ORDER.compare(children.get(i).toString(), names.get(j));
+                }
+                if (cmp == 0) {
+                    merged.add(children.get(i++));
+                    j++;
+                } else if (cmp < 0) {
+                    removed.add(merged.size());
+                    merged.add(children.get(i++));
+                } else {
+                    inserted.add(merged.size());
+                    merged.add(new ZooInspectorTreeNode(childPath(names.get(j++)), this));
+                }
+            }
+            if (inserted.isEmpty() && removed.isEmpty()) {
+                return;
+            }
+            children = merged;
+            if (!inserted.isEmpty()) {
+                model.nodesWereInserted(this, toArray(inserted));
+            }
+            if (!removed.isEmpty()) {
+                Object[] removedNodes = new Object[removed.size()];
+                for (int k = removed.size() - 1; k >= 0; k--) {
+                    removedNodes[k] = children.remove((int) removed.get(k));
+                }
+                model.nodesWereRemoved(this, toArray(removed), removedNodes);
+            }
+        }
+
+        /**
+         * Applies a fresh, ordered list of child names to a node shown as a
+         * window, keeping the window at the first child shown. The window's
+         * rows are replaced as a whole, so nodes expanded inside it collapse.
+         */
+        private void mergeWindow(DefaultTreeModel model, List<String> names) {
+            Map<String, ZooInspectorTreeNode> shown = shownChildren();
+            int first = 0;
+            for (TreeNode row : children) {
+                if (row instanceof ZooInspectorTreeNode) {
+                    first = Collections.binarySearch(names, row.toString(), CHILDREN_ORDER);
+                    first = first < 0 ? -first - 1 : first;
+                    break;
+                }
+            }
+            childNames = names;
+            windowStart = pageStart(first);
+            children = windowRows(shown);
+            model.nodeStructureChanged(this);
+        }
+
+        /**
+         * Shows the next or previous window of children, and selects the child
+         * next to the page row, so that paging with the arrow keys carries on
+         * where it left off
+         */
+        private void showPage(boolean next) {
+            DefaultTreeModel model = getModel();
+            if (model == null || children == null || isLoading()) {
+                return;
+            }
+            windowStart = pageStart(windowStart + (next ? CHILDREN_PAGE_SIZE : -CHILDREN_PAGE_SIZE));
+            children = windowRows(Collections.emptyMap());
+            model.nodeStructureChanged(this);
+            TreeNode selected = null;
+            for (TreeNode row : children) {
+                if (row instanceof ZooInspectorTreeNode) {
+                    selected = row;
+                    if (next) {
+                        break;
+                    }
+                }
+            }
+            if (selected != null) {
+                TreePath path = getTreePath().pathByAddingChild(selected);
+                tree.setSelectionPath(path);
+                tree.scrollPathToVisible(path);
+            }
+        }
+
+        /**
+         * Selects the descendant of this node with the given names below it,
+         * listing the children of the nodes on the way first where Swing has
+         * not asked for them yet, and paging to the window holding each one
+         * 
+         * @param names - the names of the nodes on the way, from the root
+         * @param depth - the index in names of the child of this node
+         */
+        private void reveal(final String[] names, final int depth) {
+            if (depth == names.length) {
+                select();
+            } else if (children == null || isLoading()) {
+                zooInspectorManager.getChildrenAsync(nodePath, CHILDREN_ORDER).thenAccept(
+                        listed -> SwingUtilities.invokeLater(() -> {
+                            getChildList();
+                            childrenLoaded(listed);
+                            revealChild(names, depth);
+                        }));
+            } else {
+                revealChild(names, depth);
+            }
+        }
+
+        private void revealChild(String[] names, int depth) {
+            DefaultTreeModel model = getModel();
+            if (model == null) {
+                return;
+            }
+            int index = Collections.binarySearch(childNames, names[depth], CHILDREN_ORDER);
+            if (index < 0) {
+                // the node is gone, show where it was
+                select();
+                return;
+            }
+            if (index < windowStart || index >= windowStart + CHILDREN_PAGE_SIZE) {
+                windowStart = pageStart(index);
+                children = windowRows(shownChildren());
+                model.nodeStructureChanged(this);
+            }
+            for (TreeNode row : children) {
+                if (row instanceof ZooInspectorTreeNode && row.toString().equals(names[depth])) {
+                    ((ZooInspectorTreeNode) row).reveal(names, depth + 1);
+                    return;
+                }
+            }
+            select();
+        }
+
+        private void select() {
+            TreePath path = getTreePath();
+            tree.setSelectionPath(path);
+            tree.scrollPathToVisible(path);
+        }
+
+        /**
+         * @return the start of the window containing the child at the given
+         *         index
+         */
+        private int pageStart(int index) {
+            int last = Math.max(childNames.size() - 1, 0);
+            int clamped = Math.max(0, Math.min(index, last));
+            return clamped - clamped % CHILDREN_PAGE_SIZE;
+        }
+
+        /**
+         * @param shown - the nodes to reuse, by name
+         * @return the rows for the window of children starting at
+         *         windowStart, with page rows before and after it as needed
+         */
+        private List<TreeNode> windowRows(Map<String, ZooInspectorTreeNode> shown) {
+            int total = childNames.size();
+            int end = Math.min(total, windowStart + CHILDREN_PAGE_SIZE);
+            List<TreeNode> rows = new ArrayList<>(end - windowStart + 2);
+            if (windowStart > 0) {
+                rows.add(new PageTreeNode(this, false,
+                        Math.max(windowStart - CHILDREN_PAGE_SIZE, 0), windowStart, total));
+            }
+            for (int i = windowStart; i < end; i++) {
+                String name = childNames.get(i);
+                ZooInspectorTreeNode node = shown.get(name);
+                rows.add(node != null ? node : new ZooInspectorTreeNode(childPath(name), this));
+            }
+            if (end < total) {
+                rows.add(new PageTreeNode(this, true,
+                        end, Math.min(end + CHILDREN_PAGE_SIZE, total), total));
+            }
+            return rows;
+        }
+
+        private Map<String, ZooInspectorTreeNode> shownChildren() {
+            Map<String, ZooInspectorTreeNode> shown = new HashMap<>();
+            for (TreeNode row : children) {
+                if (row instanceof ZooInspectorTreeNode) {
+                    shown.put(row.toString(), (ZooInspectorTreeNode) row);
+                }
+            }
+            return shown;
+        }
+
+        private String childPath(String name) {
+            return (nodePath.equals("/") ? "" : nodePath) + "/" + name;
+        }
+
+        private TreePath getTreePath() {
+            return parent == null ? new TreePath(this) : parent.getTreePath().pathByAddingChild(this);
+        }
+
+        /**
+         * @return the model of the tree, or null if this node is no longer
+         *         part of the tree shown
+         */
+        private DefaultTreeModel getModel() {
+            ZooInspectorTreeNode root = this;
+            while (root.parent != null) {
+                root = root.parent;
+            }
+            return tree.getModel().getRoot() == root ? (DefaultTreeModel) tree.getModel() : null;
         }
 
         @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-            if (obj == null)
-                return false;
-            if (getClass() != obj.getClass())
-                return false;
-            ZooInspectorTreeNode other = (ZooInspectorTreeNode) obj;
-            if (!getOuterType().equals(other.getOuterType()))
-                return false;
-            if (nodePath == null) {
-                if (other.nodePath != null)
-                    return false;
-            } else if (!nodePath.equals(other.nodePath))
-                return false;
-            if (parent == null) {
-                return other.parent == null;
-            } else return parent.equals(other.parent);
-        }
-
-        private ZooInspectorTreeViewer getOuterType() {
-            return ZooInspectorTreeViewer.this;
+        public String toString() {
+            return this.nodeName;
         }
+    }
 
+    private static int[] toArray(List<Integer> indices) {
+        int[] result = new int[indices.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = indices.get(i);
+        }
+        return result;
     }
 
     /**
@@ -314,16 +815,10 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
         List<String> selectedNodes = new ArrayList<>();
         if (paths != null) {
             for (TreePath path : paths) {
-                StringBuilder sb = new StringBuilder();
-                Object[] pathArray = path.getPath();
-                for (Object o : pathArray) {
-                    String nodeName = o.toString();
-                    if (nodeName.length() > 0) {
-                        sb.append("/");
-                        sb.append(o);
-                    }
+                Object node = path.getLastPathComponent();
+                if (node instanceof ZooInspectorTreeNode) {
+                    selectedNodes.add(((ZooInspectorTreeNode) node).nodePath);
                 }
-                selectedNodes.add(sb.toString());
             }
         }
         return selectedNodes;
@@ -332,22 +827,46 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
     /*
      * (non-Javadoc)
      * 
-     * @see org.apache.zookeeper.inspector.manager.NodeListener#processEvent(java.lang.String, java.lang.String, java.util.Map)
+     * @see org.apache.zookeeper.inspector.manager.NodeListener#processEvents(java.util.List)
      */
-    public void processEvent(String nodePath, String eventType, Map<String, String> eventInfo) {
+    public void processEvents(List<NodeEvent> events) {
         StringBuilder sb = new StringBuilder();
-        sb.append("Node: ");
-        sb.append(nodePath);
-        sb.append("\nEvent: ");
-        sb.append(eventType);
-        if (eventInfo != null) {
-            for (Map.Entry<String, String> entry : eventInfo.entrySet()) {
+        int shown = Math.min(events.size(), MAX_TOAST_EVENTS);
+        for (int i = 0; i < shown; i++) {
+            NodeEvent event = events.get(i);
+            if (i > 0) {
                 sb.append("\n");
-                sb.append(entry.getKey());
-                sb.append(": ");
-                sb.append(entry.getValue());
             }
+            sb.append("Node: ");
+            sb.append(event.getNodePath());
+            sb.append("\nEvent: ");
+            sb.append(event.getType());
+            if (event.getCount() > 1) {
+                sb.append(" (");
+                sb.append(event.getCount());
+                sb.append(" events)");
+            }
+        }
+        if (events.size() > shown) {
+            sb.append("\n+");
+            sb.append(events.size() - shown);
+            sb.append(" more nodes changed");
+        }
+        // merged with the other batches under the same node if they pile up
+        String firstPath = events.get(0).getNodePath();
+        String group = firstPath.substring(0, Math.max(firstPath.lastIndexOf('/'), 1));
+        int count = 0;
+        for (NodeEvent event : events) {
+            group = commonAncestor(group, event.getNodePath());
+            count += event.getCount();
+        }
+        this.toasterManager.showToaster(toasterIcon, sb.toString(), group, count);
+    }
+
+    private static String commonAncestor(String path, String otherPath) {
+        while (!otherPath.equals(path) && !otherPath.startsWith(path.equals("/") ? path : path + "/")) {
+            path = path.substring(0, Math.max(path.lastIndexOf('/'), 1));
         }
-        this.toasterManager.showToaster(toasterIcon, sb.toString());
+        return path;
     }
 }
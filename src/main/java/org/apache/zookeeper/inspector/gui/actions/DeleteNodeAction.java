@@ -6,6 +6,7 @@ import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
 import javax.swing.AbstractAction;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.ProgressMonitor;
 import javax.swing.SwingWorker;
 import java.awt.event.ActionEvent;
 import java.util.List;
@@ -41,18 +42,41 @@ public class DeleteNodeAction extends AbstractAction {
                     JOptionPane.WARNING_MESSAGE
             );
             if (answer == JOptionPane.YES_OPTION) {
-                SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
+                final ProgressMonitor monitor = new ProgressMonitor(parentPanel,
+                        "Deleting nodes", "", 0, 1);
+                SwingWorker<Boolean, long[]> worker = new SwingWorker<Boolean, long[]>() {
 
                     @Override
                     protected Boolean doInBackground() {
                         for (String nodePath : selectedNodes) {
-                            zooInspectorManager.deleteNode(nodePath);
+                            if (isCancelled()) {
+                                break;
+                            }
+                            zooInspectorManager.deleteNode(nodePath,
+                                    (done, total) -> publish(new long[]{done, total}));
                         }
                         return true;
                     }
 
+                    @Override
+                    protected void process(List<long[]> chunks) {
+                        if (monitor.isCanceled()) {
+                            // interrupts the delete running in doInBackground
+                            cancel(true);
+                            return;
+                        }
+                        long[] latest = chunks.get(chunks.size() - 1);
+                        long done = latest[0];
+                        long total = latest[1];
+                        monitor.setNote(done == 0 ? "Found " + total + " nodes"
+                                : "Deleted " + done + " of " + total + " nodes");
+                        monitor.setMaximum((int) Math.max(total, 1));
+                        monitor.setProgress((int) done);
+                    }
+
                     @Override
                     protected void done() {
+                        monitor.close();
                         treeViewer.refreshView();
                     }
                 };
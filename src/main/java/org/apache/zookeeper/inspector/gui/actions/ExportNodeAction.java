@@ -0,0 +1,93 @@
+package org.apache.zookeeper.inspector.gui.actions;
+
+import org.apache.zookeeper.inspector.gui.ZooInspectorTreeViewer;
+import org.apache.zookeeper.inspector.logger.LoggerFactory;
+import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
+
+import javax.swing.AbstractAction;
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+public class ExportNodeAction extends AbstractAction {
+
+    private final JPanel parentPanel;
+    private final ZooInspectorTreeViewer treeViewer;
+    private final ZooInspectorManager zooInspectorManager;
+    private final JFileChooser fileChooser = new JFileChooser(new File("."));
+
+    public ExportNodeAction(JPanel parentPanel,
+                            ZooInspectorTreeViewer treeViewer,
+                            ZooInspectorManager zooInspectorManager) {
+        this.parentPanel = parentPanel;
+        this.treeViewer = treeViewer;
+        this.zooInspectorManager = zooInspectorManager;
+    }
+
+    public void actionPerformed(ActionEvent e) {
+        final List<String> selectedNodes = treeViewer
+                .getSelectedNodes();
+        if (selectedNodes.size() != 1) {
+            JOptionPane.showMessageDialog(parentPanel,
+                    "Please select 1 node to export with its descendants.");
+            return;
+        }
+        if (fileChooser.showSaveDialog(parentPanel) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final String nodePath = selectedNodes.get(0);
+        final File file = fileChooser.getSelectedFile();
+        final ProgressMonitor monitor = new ProgressMonitor(parentPanel,
+                "Exporting " + nodePath, "", 0, 1);
+        SwingWorker<Long, long[]> worker = new SwingWorker<Long, long[]>() {
+
+            @Override
+            protected Long doInBackground() throws Exception {
+                return zooInspectorManager.exportNodes(nodePath, file,
+                        (done, total) -> publish(new long[]{done, total}));
+            }
+
+            @Override
+            protected void process(List<long[]> chunks) {
+                if (monitor.isCanceled()) {
+                    // interrupts the export running in doInBackground
+                    cancel(true);
+                    return;
+                }
+                long[] latest = chunks.get(chunks.size() - 1);
+                monitor.setNote("Exported " + latest[0] + " nodes");
+                // the total grows as the subtree is discovered
+                monitor.setMaximum((int) Math.max(latest[1] + 1, 1));
+                monitor.setProgress((int) latest[0]);
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                try {
+                    long exported = get();
+                    JOptionPane.showMessageDialog(parentPanel,
+                            "Exported " + exported + " nodes to " + file);
+                } catch (CancellationException ignored) {
+                    // cancelled from the progress monitor
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    LoggerFactory.getLogger().error(
+                            "Error occurred exporting node: " + nodePath, ex.getCause());
+                    JOptionPane.showMessageDialog(parentPanel,
+                            "Export failed: " + ex.getCause().getMessage(), "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+    }
+}
@@ -0,0 +1,114 @@
+package org.apache.zookeeper.inspector.gui.actions;
+
+import org.apache.zookeeper.inspector.gui.ZooInspectorTopNodesDialog;
+import org.apache.zookeeper.inspector.gui.ZooInspectorTreeViewer;
+import org.apache.zookeeper.inspector.logger.LoggerFactory;
+import org.apache.zookeeper.inspector.manager.TopNodes;
+import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
+
+import javax.swing.AbstractAction;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
+import java.awt.event.ActionEvent;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+public class FindTopNodesAction extends AbstractAction {
+
+    /**
+     * The number of nodes listed for each kind by default
+     */
+    public static final int DEFAULT_COUNT = 100;
+
+    private final JPanel parentPanel;
+    private final ZooInspectorTreeViewer treeViewer;
+    private final ZooInspectorManager zooInspectorManager;
+
+    public FindTopNodesAction(JPanel parentPanel,
+                              ZooInspectorTreeViewer treeViewer,
+                              ZooInspectorManager zooInspectorManager) {
+        this.parentPanel = parentPanel;
+        this.treeViewer = treeViewer;
+        this.zooInspectorManager = zooInspectorManager;
+    }
+
+    public void actionPerformed(ActionEvent e) {
+        final List<String> selectedNodes = treeViewer
+                .getSelectedNodes();
+        if (selectedNodes.size() != 1) {
+            JOptionPane.showMessageDialog(parentPanel,
+                    "Please select 1 node to search with its descendants.");
+            return;
+        }
+        String input = (String) JOptionPane.showInputDialog(parentPanel,
+                "Number of nodes to list:", "Find Largest Nodes",
+                JOptionPane.QUESTION_MESSAGE, null, null, String.valueOf(DEFAULT_COUNT));
+        if (input == null) {
+            return;
+        }
+        final int count = parseCount(input);
+        if (count < 1) {
+            JOptionPane.showMessageDialog(parentPanel,
+                    "Please enter a positive number of nodes.");
+            return;
+        }
+        final String nodePath = selectedNodes.get(0);
+        final ProgressMonitor monitor = new ProgressMonitor(parentPanel,
+                "Searching " + nodePath, "", 0, 1);
+        SwingWorker<TopNodes, long[]> worker = new SwingWorker<TopNodes, long[]>() {
+
+            @Override
+            protected TopNodes doInBackground() throws Exception {
+                return zooInspectorManager.findTopNodes(nodePath, count,
+                        (done, total) -> publish(new long[]{done, total}));
+            }
+
+            @Override
+            protected void process(List<long[]> chunks) {
+                if (monitor.isCanceled()) {
+                    // interrupts the search running in doInBackground
+                    cancel(true);
+                    return;
+                }
+                long[] latest = chunks.get(chunks.size() - 1);
+                monitor.setNote("Scanned " + latest[0] + " nodes");
+                // the total grows as the subtree is discovered
+                monitor.setMaximum((int) Math.max(latest[1] + 1, 1));
+                monitor.setProgress((int) latest[0]);
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                try {
+                    ZooInspectorTopNodesDialog dialog = new ZooInspectorTopNodesDialog(
+                            JOptionPane.getFrameForComponent(parentPanel), treeViewer, get());
+                    dialog.setLocationRelativeTo(parentPanel);
+                    dialog.setVisible(true);
+                } catch (CancellationException ignored) {
+                    // cancelled from the progress monitor
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    LoggerFactory.getLogger().error(
+                            "Error occurred searching node: " + nodePath, ex.getCause());
+                    JOptionPane.showMessageDialog(parentPanel,
+                            "Search failed: " + ex.getCause().getMessage(), "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private static int parseCount(String input) {
+        try {
+            return Integer.parseInt(input.trim());
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.apache.zookeeper.inspector.gui.actions;
+
+import org.apache.zookeeper.inspector.gui.ZooInspectorTreeViewer;
+import org.apache.zookeeper.inspector.logger.LoggerFactory;
+import org.apache.zookeeper.inspector.manager.ImportPolicy;
+import org.apache.zookeeper.inspector.manager.ImportResult;
+import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
+
+import javax.swing.AbstractAction;
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+public class ImportNodeAction extends AbstractAction {
+
+    private final JPanel parentPanel;
+    private final ZooInspectorTreeViewer treeViewer;
+    private final ZooInspectorManager zooInspectorManager;
+    private final JFileChooser fileChooser = new JFileChooser(new File("."));
+
+    public ImportNodeAction(JPanel parentPanel,
+                            ZooInspectorTreeViewer treeViewer,
+                            ZooInspectorManager zooInspectorManager) {
+        this.parentPanel = parentPanel;
+        this.treeViewer = treeViewer;
+        this.zooInspectorManager = zooInspectorManager;
+    }
+
+    public void actionPerformed(ActionEvent e) {
+        final List<String> selectedNodes = treeViewer
+                .getSelectedNodes();
+        if (selectedNodes.size() != 1) {
+            JOptionPane.showMessageDialog(parentPanel,
+                    "Please select 1 parent node to import the subtree under.");
+            return;
+        }
+        if (fileChooser.showOpenDialog(parentPanel) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final ImportPolicy policy = (ImportPolicy) JOptionPane.showInputDialog(parentPanel,
+                "What should happen to nodes which already exist?", "Import Subtree",
+                JOptionPane.QUESTION_MESSAGE, null, ImportPolicy.values(), ImportPolicy.SKIP);
+        if (policy == null) {
+            return;
+        }
+        final String parentPath = selectedNodes.get(0);
+        final File file = fileChooser.getSelectedFile();
+        final ProgressMonitor monitor = new ProgressMonitor(parentPanel,
+                "Importing " + file.getName() + " under " + parentPath, "", 0, 1);
+        final long start = System.nanoTime();
+        SwingWorker<ImportResult, Long> worker = new SwingWorker<ImportResult, Long>() {
+
+            @Override
+            protected ImportResult doInBackground() throws Exception {
+                return zooInspectorManager.importNodes(file, parentPath, policy,
+                        (done, total) -> publish(done));
+            }
+
+            @Override
+            protected void process(List<Long> chunks) {
+                if (monitor.isCanceled()) {
+                    // interrupts the import running in doInBackground
+                    cancel(true);
+                    return;
+                }
+                long done = chunks.get(chunks.size() - 1);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                monitor.setNote(String.format("Imported %d nodes (%.0f nodes/s)", done,
+                        seconds > 0 ? done / seconds : 0));
+                // the number of nodes in the file is only known at its end
+                monitor.setMaximum((int) done + 1);
+                monitor.setProgress((int) done);
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                treeViewer.refreshView();
+                try {
+                    JOptionPane.showMessageDialog(parentPanel, get().toString());
+                } catch (CancellationException ignored) {
+                    // cancelled from the progress monitor
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    LoggerFactory.getLogger().error(
+                            "Error occurred importing file: " + file, ex.getCause());
+                    JOptionPane.showMessageDialog(parentPanel,
+                            "Import failed: " + ex.getCause().getMessage(), "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+    }
+}
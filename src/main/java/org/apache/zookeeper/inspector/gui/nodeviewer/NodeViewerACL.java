@@ -25,16 +25,15 @@ import java.awt.Insets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
 
 import javax.swing.BorderFactory;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
-import javax.swing.SwingWorker;
+import javax.swing.SwingUtilities;
 
-import org.apache.zookeeper.inspector.logger.LoggerFactory;
+import org.apache.zookeeper.inspector.manager.NodeSnapshot;
 import org.apache.zookeeper.inspector.manager.ZooInspectorNodeManager;
 
 /**
@@ -71,58 +70,56 @@ public class NodeViewerACL extends ZooInspectorNodeViewer {
      * nodeSelectionChanged(java.util.Set)
      */
     @Override
-    public void nodeSelectionChanged(List<String> selectedNodes) {
+    public void nodeSelectionChanged(final List<String> selectedNodes) {
+        if (selectedNodes.size() > 0) {
+            zooInspectorManager.getNodeSnapshotAsync(selectedNodes.get(0)).thenAccept(
+                    snapshot -> SwingUtilities.invokeLater(() -> nodeSelectionChanged(selectedNodes, snapshot)));
+        } else {
+            this.aclDataPanel.removeAll();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.zookeeper.inspector.gui.nodeviewer.ZooInspectorNodeViewer#
+     * nodeSelectionChanged(java.util.List,
+     * org.apache.zookeeper.inspector.manager.NodeSnapshot)
+     */
+    @Override
+    public void nodeSelectionChanged(List<String> selectedNodes, NodeSnapshot snapshot) {
         this.aclDataPanel.removeAll();
         if (selectedNodes.size() > 0) {
             this.selectedNode = selectedNodes.get(0);
-            SwingWorker<List<Map<String, String>>, Void> worker = new SwingWorker<List<Map<String, String>>, Void>() {
-
-                @Override
-                protected List<Map<String, String>> doInBackground() {
-                    return zooInspectorManager.getACLs(selectedNode);
+            List<Map<String, String>> acls = snapshot != null ? snapshot.getACLs() : new ArrayList<Map<String, String>>();
+            aclDataPanel.setLayout(new GridBagLayout());
+            int j = 0;
+            for (Map<String, String> data : acls) {
+                int rowPos = 2 * j + 1;
+                JPanel aclPanel = new JPanel();
+                aclPanel.setBorder(BorderFactory.createLineBorder(Color.BLACK));
+                aclPanel.setBackground(Color.WHITE);
+                aclPanel.setLayout(new GridBagLayout());
+                int i = 0;
+                for (Map.Entry<String, String> entry : data.entrySet()) {
+                    int rowPosACL = 2 * i + 1;
+                    JLabel label = new JLabel(entry.getKey());
+                    JTextField text = new JTextField(entry.getValue());
+                    text.setEditable(false);
+                    GridBagConstraints c1 = gbcs(1, rowPosACL,0, 0, GridBagConstraints.BOTH);
+                    aclPanel.add(label, c1);
+                    GridBagConstraints c2 = gbcs(3, rowPosACL,0, 0, GridBagConstraints.BOTH);
+                    aclPanel.add(text, c2);
+                    i++;
                 }
 
-                @Override
-                protected void done() {
-                    List<Map<String, String>> acls;
-                    try {
-                        acls = get();
-                    } catch (InterruptedException | ExecutionException e) {
-                        acls = new ArrayList<>();
-                        LoggerFactory.getLogger().error(
-                                "Error retrieving ACL Information for node: "
-                                        + selectedNode, e);
-                    }
-                    aclDataPanel.setLayout(new GridBagLayout());
-                    int j = 0;
-                    for (Map<String, String> data : acls) {
-                        int rowPos = 2 * j + 1;
-                        JPanel aclPanel = new JPanel();
-                        aclPanel.setBorder(BorderFactory.createLineBorder(Color.BLACK));
-                        aclPanel.setBackground(Color.WHITE);
-                        aclPanel.setLayout(new GridBagLayout());
-                        int i = 0;
-                        for (Map.Entry<String, String> entry : data.entrySet()) {
-                            int rowPosACL = 2 * i + 1;
-                            JLabel label = new JLabel(entry.getKey());
-                            JTextField text = new JTextField(entry.getValue());
-                            text.setEditable(false);
-                            GridBagConstraints c1 = gbcs(1, rowPosACL,0, 0, GridBagConstraints.BOTH);
-                            aclPanel.add(label, c1);
-                            GridBagConstraints c2 = gbcs(3, rowPosACL,0, 0, GridBagConstraints.BOTH);
-                            aclPanel.add(text, c2);
-                            i++;
-                        }
-
-                        GridBagConstraints c = gbcs(1, rowPos,1, 1, GridBagConstraints.NONE);
-                        aclDataPanel.add(aclPanel, c);
-                        j++;
-                    }
-                    NodeViewerACL.this.aclDataPanel.revalidate();
-                    NodeViewerACL.this.aclDataPanel.repaint();
-                }
-            };
-            worker.execute();
+                GridBagConstraints c = gbcs(1, rowPos,1, 1, GridBagConstraints.NONE);
+                aclDataPanel.add(aclPanel, c);
+                j++;
+            }
+            this.aclDataPanel.revalidate();
+            this.aclDataPanel.repaint();
         }
     }
 
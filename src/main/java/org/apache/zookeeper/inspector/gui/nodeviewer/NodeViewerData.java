@@ -19,18 +19,17 @@ package org.apache.zookeeper.inspector.gui.nodeviewer;
 
 import java.awt.BorderLayout;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
 
 import javax.swing.JButton;
 import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
 import javax.swing.JTextPane;
 import javax.swing.JToolBar;
-import javax.swing.SwingWorker;
+import javax.swing.SwingUtilities;
 
 import org.apache.zookeeper.inspector.ZooInspector;
 import org.apache.zookeeper.inspector.gui.IconResource;
-import org.apache.zookeeper.inspector.logger.LoggerFactory;
+import org.apache.zookeeper.inspector.manager.NodeSnapshot;
 import org.apache.zookeeper.inspector.manager.ZooInspectorNodeManager;
 
 /**
@@ -89,31 +88,26 @@ public class NodeViewerData extends ZooInspectorNodeViewer {
      * nodeSelectionChanged(java.util.Set)
      */
     @Override
-    public void nodeSelectionChanged(List<String> selectedNodes) {
+    public void nodeSelectionChanged(final List<String> selectedNodes) {
         if (selectedNodes.size() > 0) {
-            this.selectedNode = selectedNodes.get(0);
-            SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
-
-                @Override
-                protected String doInBackground() {
-                    return NodeViewerData.this.zooInspectorManager
-                            .getData(NodeViewerData.this.selectedNode);
-                }
+            zooInspectorManager.getNodeSnapshotAsync(selectedNodes.get(0)).thenAccept(
+                    snapshot -> SwingUtilities.invokeLater(() -> nodeSelectionChanged(selectedNodes, snapshot)));
+        }
+    }
 
-                @Override
-                protected void done() {
-                    String data = "";
-                    try {
-                        data = get();
-                    } catch (InterruptedException | ExecutionException e) {
-                        LoggerFactory.getLogger().error(
-                                "Error retrieving data for node: "
-                                        + NodeViewerData.this.selectedNode, e);
-                    }
-                    NodeViewerData.this.dataArea.setText(data);
-                }
-            };
-            worker.execute();
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.zookeeper.inspector.gui.nodeviewer.ZooInspectorNodeViewer#
+     * nodeSelectionChanged(java.util.List,
+     * org.apache.zookeeper.inspector.manager.NodeSnapshot)
+     */
+    @Override
+    public void nodeSelectionChanged(List<String> selectedNodes, NodeSnapshot snapshot) {
+        if (selectedNodes.size() > 0) {
+            this.selectedNode = selectedNodes.get(0);
+            this.dataArea.setText(snapshot != null ? snapshot.getDecryptedData() : "");
         }
     }
 
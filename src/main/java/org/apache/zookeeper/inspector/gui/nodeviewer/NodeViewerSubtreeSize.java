@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.gui.nodeviewer;
+
+import java.awt.BorderLayout;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JToolBar;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableRowSorter;
+
+import org.apache.zookeeper.inspector.ZooInspector;
+import org.apache.zookeeper.inspector.gui.IconResource;
+import org.apache.zookeeper.inspector.logger.LoggerFactory;
+import org.apache.zookeeper.inspector.manager.SubtreeUsage;
+import org.apache.zookeeper.inspector.manager.ZooInspectorNodeManager;
+
+/**
+ * A node viewer for displaying how much space the subtree of each child of
+ * the selected node takes, like du does for directories. Scanning a large
+ * subtree reads every node in it, so a scan is only started on request. The
+ * table fills in while the scan runs, and can be sorted by any column.
+ */
+public class NodeViewerSubtreeSize extends ZooInspectorNodeViewer {
+    private static final int DATA_SIZE_COLUMN = 2;
+
+    private ZooInspectorNodeManager zooInspectorManager;
+    private final UsageTableModel tableModel = new UsageTableModel();
+    private final JLabel statusLabel = new JLabel();
+    private final JButton scanButton;
+    private final JButton stopButton;
+    private String selectedNode;
+    private SwingWorker<List<SubtreeUsage>, List<SubtreeUsage>> scan;
+
+    public NodeViewerSubtreeSize() {
+        this.setLayout(new BorderLayout());
+        JTable table = new JTable(tableModel);
+        TableRowSorter<UsageTableModel> sorter = new TableRowSorter<>(tableModel);
+        sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(DATA_SIZE_COLUMN, SortOrder.DESCENDING)));
+        table.setRowSorter(sorter);
+        table.getColumnModel().getColumn(DATA_SIZE_COLUMN).setCellRenderer(new DataSizeRenderer());
+        this.add(new JScrollPane(table), BorderLayout.CENTER);
+        JToolBar toolbar = new JToolBar();
+        toolbar.setFloatable(false);
+        scanButton = new JButton(ZooInspector.iconResource.get(IconResource.ICON_START, ""));
+        scanButton.setToolTipText("Scan the subtrees of the selected node");
+        scanButton.addActionListener(e -> startScan());
+        stopButton = new JButton(ZooInspector.iconResource.get(IconResource.ICON_STOP, ""));
+        stopButton.setToolTipText("Stop the scan");
+        stopButton.setEnabled(false);
+        stopButton.addActionListener(e -> stopScan());
+        toolbar.add(scanButton);
+        toolbar.add(stopButton);
+        toolbar.addSeparator();
+        toolbar.add(statusLabel);
+        this.add(toolbar, BorderLayout.NORTH);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.zookeeper.inspector.gui.nodeviewer.ZooInspectorNodeViewer#
+     * getTitle()
+     */
+    @Override
+    public String getTitle() {
+        return "Subtree Size";
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.zookeeper.inspector.gui.nodeviewer.ZooInspectorNodeViewer#
+     * nodeSelectionChanged(java.util.List)
+     */
+    @Override
+    public void nodeSelectionChanged(List<String> selectedNodes) {
+        // the results of a previous scan stay until the next one starts
+        this.selectedNode = selectedNodes.isEmpty() ? null : selectedNodes.get(0);
+        scanButton.setEnabled(selectedNode != null);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.zookeeper.inspector.gui.nodeviewer.ZooInspectorNodeViewer#
+     * setZooInspectorManager
+     * (org.apache.zookeeper.inspector.manager.ZooInspectorNodeManager)
+     */
+    @Override
+    public void setZooInspectorManager(ZooInspectorNodeManager zooInspectorManager) {
+        this.zooInspectorManager = zooInspectorManager;
+    }
+
+    private void startScan() {
+        if (selectedNode == null) {
+            return;
+        }
+        stopScan();
+        final String nodePath = selectedNode;
+        tableModel.setUsages(Collections.<SubtreeUsage>emptyList());
+        statusLabel.setText("Scanning " + nodePath + "...");
+        stopButton.setEnabled(true);
+        scan = new SwingWorker<List<SubtreeUsage>, List<SubtreeUsage>>() {
+
+            @Override
+            protected List<SubtreeUsage> doInBackground() throws Exception {
+                return zooInspectorManager.getSubtreeUsage(nodePath, this::publish);
+            }
+
+            @Override
+            protected void process(List<List<SubtreeUsage>> chunks) {
+                if (scan == this) {
+                    // only the latest partial result matters
+                    List<SubtreeUsage> latest = chunks.get(chunks.size() - 1);
+                    tableModel.setUsages(latest);
+                    statusLabel.setText("Scanning " + nodePath + "... " + summary(latest));
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (scan != this) {
+                    return;
+                }
+                scan = null;
+                stopButton.setEnabled(false);
+                try {
+                    List<SubtreeUsage> usages = get();
+                    tableModel.setUsages(usages);
+                    statusLabel.setText(nodePath + ": " + summary(usages));
+                } catch (CancellationException ignored) {
+                    statusLabel.setText("Scan of " + nodePath + " stopped");
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    LoggerFactory.getLogger().error("Error occurred scanning node: " + nodePath, ex.getCause());
+                    statusLabel.setText("Scan of " + nodePath + " failed: " + ex.getCause().getMessage());
+                }
+            }
+        };
+        scan.execute();
+    }
+
+    private void stopScan() {
+        if (scan != null) {
+            SwingWorker<List<SubtreeUsage>, List<SubtreeUsage>> stopped = scan;
+            // interrupts the scan running in doInBackground
+            stopped.cancel(true);
+            if (scan == stopped) {
+                scan = null;
+                stopButton.setEnabled(false);
+                statusLabel.setText("Scan stopped");
+            }
+        }
+    }
+
+    private static String summary(List<SubtreeUsage> usages) {
+        long nodes = 0;
+        long bytes = 0;
+        long unreadable = 0;
+        for (SubtreeUsage usage : usages) {
+            nodes += usage.getNodeCount();
+            bytes += usage.getDataBytes();
+            unreadable += usage.getUnreadableCount();
+        }
+        return usages.size() + " children, " + nodes + " nodes, " + formatBytes(bytes)
+                + (unreadable > 0 ? ", " + unreadable + " not readable (subtrees left out)" : "");
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        int unit = (63 - Long.numberOfLeadingZeros(bytes)) / 10;
+        return String.format("%.1f %siB", (double) bytes / (1L << (unit * 10)), "KMGTPE".charAt(unit - 1));
+    }
+
+    /**
+     * Shows data sizes in binary units while still sorting by bytes
+     */
+    private static class DataSizeRenderer extends DefaultTableCellRenderer {
+        DataSizeRenderer() {
+            setHorizontalAlignment(SwingConstants.RIGHT);
+        }
+
+        @Override
+        protected void setValue(Object value) {
+            setText(value instanceof Long ? formatBytes((Long) value) : "");
+        }
+    }
+
+    /**
+     * The rows of the table, one per child of the scanned node
+     */
+    private static class UsageTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = { "Child", "Nodes", "Data Size", "Max Depth", "Ephemeral",
+                "Scanned %" };
+        private static final Class<?>[] COLUMN_CLASSES = { String.class, Long.class, Long.class, Integer.class,
+                Long.class, Integer.class };
+
+        private List<SubtreeUsage> usages = new ArrayList<>();
+
+        void setUsages(List<SubtreeUsage> usages) {
+            this.usages = usages;
+            // keeps the sort order of the table
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return usages.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return COLUMN_CLASSES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            SubtreeUsage usage = usages.get(row);
+            switch (column) {
+            case 0:
+                return usage.getNodeName();
+            case 1:
+                // the server's count is known before the crawl gets there
+                return Math.max(usage.getNodeCount(), usage.getExpectedNodeCount());
+            case 2:
+                return usage.getDataBytes();
+            case 3:
+                return usage.getMaxDepth();
+            case 4:
+                return usage.getEphemeralCount();
+            default:
+                long expected = usage.getExpectedNodeCount();
+                return expected > 0 ? (int) Math.min(100, usage.getNodeCount() * 100 / expected) : null;
+            }
+        }
+    }
+}
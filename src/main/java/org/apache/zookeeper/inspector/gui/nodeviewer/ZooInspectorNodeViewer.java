@@ -23,6 +23,7 @@ import java.util.List;
 
 import javax.swing.JPanel;
 
+import org.apache.zookeeper.inspector.manager.NodeSnapshot;
 import org.apache.zookeeper.inspector.manager.ZooInspectorNodeManager;
 
 /**
@@ -53,6 +54,24 @@ public abstract class ZooInspectorNodeViewer extends JPanel implements
      */
     public abstract void nodeSelectionChanged(List<String> selectedNodes);
 
+    /**
+     * Called whenever the selected nodes in the tree view changes, once the
+     * {@link NodeSnapshot} of the first selected node has been read. The
+     * snapshot is read once and shared by all node viewers, so node viewers
+     * which only show the selected node should override this method instead
+     * of reading the node themselves. By default this calls
+     * {@link #nodeSelectionChanged(List)}.
+     * 
+     * @param selectedNodes
+     *            - the nodes currently selected in the tree view
+     * @param snapshot
+     *            - the {@link NodeSnapshot} of the first selected node, or
+     *            null if no node is selected or it could not be read
+     */
+    public void nodeSelectionChanged(List<String> selectedNodes, NodeSnapshot snapshot) {
+        nodeSelectionChanged(selectedNodes);
+    }
+
     /**
      * @return the title of the node viewer. this will be shown on the tab for
      *         this node viewer.
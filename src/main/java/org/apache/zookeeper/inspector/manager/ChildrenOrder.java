@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.Comparator;
+
+/**
+ * The orders in which the children of a node can be listed
+ */
+public enum ChildrenOrder implements Comparator<String> {
+    /**
+     * Plain {@link String} order, as used by
+     * {@link ZooInspectorReadOnlyManager#getNodeChild(String, int)} and
+     * {@link ZooInspectorReadOnlyManager#getNodeIndex(String)}
+     */
+    LEXICOGRAPHIC {
+        public int compare(String a, String b) {
+            return a.compareTo(b);
+        }
+    },
+    /**
+     * Names ordered by the text before the number they end with, then by that
+     * number, so that sequential nodes are listed in the order they were
+     * created: <code>lock-9</code> before <code>lock-10</code>, and
+     * <code>lock-0000000010</code> before <code>lock-0000000100</code> of any
+     * other prefix. Names which only differ in leading zeros are in
+     * {@link #LEXICOGRAPHIC} order.
+     */
+    NATURAL {
+        public int compare(String a, String b) {
+            int aStart = NaturalOrder.suffixStart(a);
+            int bStart = NaturalOrder.suffixStart(b);
+            int cmp = a.substring(0, aStart).compareTo(b.substring(0, bStart));
+            if (cmp == 0) {
+                cmp = Long.compare(NaturalOrder.suffixKey(a, aStart), NaturalOrder.suffixKey(b, bStart));
+            }
+            return cmp != 0 ? cmp : a.compareTo(b);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.jute.BinaryInputArchive;
+import org.apache.jute.BinaryOutputArchive;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * The file format subtrees are exported to.
+ * <p>
+ * A file starts with the four bytes {@link #MAGIC} and a format version byte,
+ * written straight to the file channel, followed by a gzip stream of records.
+ * Each record is an int length followed by that many bytes holding the
+ * {@link NodeRecord} in zookeeper's own jute encoding: the path, the
+ * {@link Stat}, the number of ACLs and each ACL, and the data as a length
+ * prefixed buffer, with length -1 for no data. A record of length 0 ends the
+ * file, so that a truncated file is told apart from a complete one.
+ * <p>
+ * A node's record always comes after the record of its parent. Records are
+ * read and written one at a time, so neither side holds more than one node in
+ * memory.
+ */
+public final class ExportFile {
+    /**
+     * The first bytes of every export file
+     */
+    public static final byte[] MAGIC = {'Z', 'K', 'E', 'X'};
+
+    /**
+     * The version of the format written
+     */
+    public static final byte VERSION = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ExportFile() {
+    }
+
+    /**
+     * @param file - the file to create or overwrite
+     * @return a {@link Writer} for the file
+     * @throws IOException - if the file cannot be opened
+     */
+    public static Writer openWriter(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1);
+            header.put(MAGIC).put(VERSION).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            return new Writer(new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param file - the export file to read
+     * @return a {@link Reader} for the file
+     * @throws IOException - if the file cannot be opened or is not an export
+     *                     file
+     */
+    public static Reader openReader(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException("Not an export file: " + file);
+                }
+            }
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not an export file: " + file);
+            }
+            byte version = header.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported export file version " + version + ": " + file);
+            }
+            return new Reader(new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes {@link NodeRecord}s to an export file
+     */
+    public static class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+        private final BinaryOutputArchive archive = BinaryOutputArchive.getArchive(record);
+        private boolean finished;
+
+        private Writer(OutputStream out) {
+            this.out = new DataOutputStream(out);
+        }
+
+        /**
+         * @param node - the node to append
+         * @throws IOException - if the record cannot be written
+         */
+        public void write(NodeRecord node) throws IOException {
+            record.reset();
+            archive.writeString(node.getPath(), "path");
+            node.getStat().serialize(archive, "stat");
+            archive.writeInt(node.getACLs().size(), "acls");
+            for (ACL acl : node.getACLs()) {
+                acl.serialize(archive, "acl");
+            }
+            archive.writeBuffer(node.getData(), "data");
+            out.writeInt(record.size());
+            record.writeTo(out);
+        }
+
+        /**
+         * Marks the file as complete. Closing a writer which was not finished
+         * leaves a file which cannot be read to its end, so that an export
+         * which failed half way is not mistaken for a complete one.
+         *
+         * @throws IOException - if the end of the file cannot be written
+         */
+        public void finish() throws IOException {
+            out.writeInt(0);
+            finished = true;
+        }
+
+        /**
+         * @return true if {@link #finish()} was called
+         */
+        public boolean isFinished() {
+            return finished;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.io.Closeable#close()
+         */
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads {@link NodeRecord}s from an export file
+     */
+    public static class Reader implements Closeable {
+        private final DataInputStream in;
+        private byte[] buffer = new byte[BUFFER_SIZE];
+
+        private Reader(InputStream in) {
+            this.in = new DataInputStream(in);
+        }
+
+        /**
+         * @return the next node, or null at the end of the file
+         * @throws IOException - if the file cannot be read, or ends before its
+         *                     last record
+         */
+        public NodeRecord read() throws IOException {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                throw new IOException("Export file is truncated", e);
+            }
+            if (length == 0) {
+                return null;
+            }
+            if (length < 0) {
+                throw new IOException("Export file is corrupt, record length " + length);
+            }
+            if (length > buffer.length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            in.readFully(buffer, 0, length);
+            BinaryInputArchive archive = BinaryInputArchive.getArchive(
+                    new ByteArrayInputStream(buffer, 0, length));
+            String path = archive.readString("path");
+            Stat stat = new Stat();
+            stat.deserialize(archive, "stat");
+            int aclCount = archive.readInt("acls");
+            List<ACL> acls = new ArrayList<>(aclCount);
+            for (int i = 0; i < aclCount; i++) {
+                ACL acl = new ACL();
+                acl.deserialize(archive, "acl");
+                acls.add(acl);
+            }
+            byte[] data = archive.readBuffer("data");
+            return new NodeRecord(path, stat, acls, data);
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.io.Closeable#close()
+         */
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.retry.RetryPolicy;
+import org.apache.zookeeper.retry.ZooKeeperRetry;
+
+/**
+ * Hedges the reads of the main session against a slow server. A read which
+ * has not been answered by the 95th percentile of the latency of the main
+ * session is sent again on a session of a {@link ReadSessionPool} connected
+ * to another server, and whichever answer comes first is used. A server
+ * stalled by a long garbage collection pause then delays a read by about the
+ * 95th percentile latency instead of by the length of the pause, at the cost
+ * of sending about one read in twenty twice.
+ * <p>
+ * The other server may be behind the main one. Unless its session has
+ * already seen a zxid as recent as the main session has, the read is sent
+ * after a sync, so that it reflects the writes of the main session, such as
+ * a node just added. Only successful answers of the other server are used,
+ * and they are never cached, as they are not ordered with the watch events
+ * of the main session.
+ */
+class HedgedReads {
+    /**
+     * The number of latencies of the main session kept to compute the 95th
+     * percentile from
+     */
+    public static final int SAMPLES = 1024;
+    /**
+     * The delay, in milliseconds, before a read is hedged, until enough
+     * latencies were recorded to compute it
+     */
+    public static final long DEFAULT_DELAY = 100;
+    /**
+     * The shortest delay, in milliseconds, before a read is hedged
+     */
+    public static final long MIN_DELAY = 2;
+
+    private static final int RECOMPUTE_INTERVAL = 128;
+
+    private final ZooKeeperRetry session;
+    private final ReadSessionPool pool;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ZooInspector hedged reads");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder won = new LongAdder();
+
+    // only recorded on the zookeeper event thread of the main session
+    private final long[] latencies = new long[SAMPLES];
+    private long recorded;
+    private volatile long delayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_DELAY);
+
+    /**
+     * @param session - the main session, whose reads are hedged
+     * @param pool    - the sessions to hedge reads on
+     */
+    HedgedReads(ZooKeeperRetry session, ReadSessionPool pool) {
+        this.session = session;
+        this.pool = pool;
+    }
+
+    /**
+     * Starts timing a read sent on the main session and, unless it is a retry,
+     * schedules its hedge
+     *
+     * @param future - the future the read completes
+     * @param retry  - the retries of the read
+     * @param hedge  - sends the read on the given session, completing the
+     *               future through {@link #answered(CompletableFuture, Object)}
+     * @return the start time of the read, to pass to
+     *         {@link #answered(long, RetryPolicy.Retry)}
+     */
+    long start(CompletableFuture<?> future, RetryPolicy.Retry retry, Consumer<ZooKeeper> hedge) {
+        if (retry.getAttempts() > 0) {
+            return 0;
+        }
+        reads.increment();
+        scheduler.schedule(() -> {
+            if (!future.isDone()) {
+                ZooKeeperRetry other = pool.other(session.getServerAddress());
+                if (other != null) {
+                    hedged.increment();
+                    send(future, other, hedge);
+                }
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+        return System.nanoTime();
+    }
+
+    /**
+     * Sends a hedge, first syncing the other server with the leader if it may
+     * not have applied everything the main session has seen. The zxid of a
+     * session only grows, so one already as recent as the main session's
+     * stays so for the read sent after it.
+     */
+    private void send(CompletableFuture<?> future, ZooKeeperRetry other, Consumer<ZooKeeper> hedge) {
+        if (other.getLastZxid() >= session.getLastZxid()) {
+            hedge.accept(other);
+            return;
+        }
+        other.sync("/", (rc, path, ctx) -> {
+            if (rc == Code.OK.intValue() && !future.isDone()) {
+                hedge.accept(other);
+            }
+        }, null);
+    }
+
+    /**
+     * Records the latency of a read answered by the main session. Only called
+     * on the zookeeper event thread of the main session.
+     *
+     * @param start - the start time returned by
+     *              {@link #start(CompletableFuture, RetryPolicy.Retry, Consumer)}
+     * @param retry - the retries of the read
+     */
+    void answered(long start, RetryPolicy.Retry retry) {
+        if (retry.getAttempts() > 0) {
+            // the backoff says nothing of the latency of the server
+            return;
+        }
+        latencies[(int) (recorded++ % SAMPLES)] = System.nanoTime() - start;
+        if (recorded >= RECOMPUTE_INTERVAL && recorded % RECOMPUTE_INTERVAL == 0) {
+            long[] sorted = Arrays.copyOf(latencies, (int) Math.min(recorded, SAMPLES));
+            Arrays.sort(sorted);
+            delayNanos = Math.max(sorted[sorted.length * 95 / 100], TimeUnit.MILLISECONDS.toNanos(MIN_DELAY));
+        }
+    }
+
+    /**
+     * Completes a read with the answer of its hedge
+     *
+     * @param future - the future of the read
+     * @param value  - the answer of the other server
+     */
+    <T> void answered(CompletableFuture<T> future, T value) {
+        if (future.complete(value)) {
+            won.increment();
+        }
+    }
+
+    /**
+     * @return the number of reads sent on the main session
+     */
+    long getReads() {
+        return reads.sum();
+    }
+
+    /**
+     * @return the number of reads sent again on another server
+     */
+    long getHedged() {
+        return hedged.sum();
+    }
+
+    /**
+     * @return the number of reads answered first by another server
+     */
+    long getWon() {
+        return won.sum();
+    }
+
+    /**
+     * @return the delay, in milliseconds, after which reads are currently
+     *         hedged
+     */
+    double getDelay() {
+        return delayNanos / 1e6;
+    }
+
+    /**
+     * Stops hedging reads. The pool is closed by its owner.
+     */
+    void close() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        long readCount = getReads();
+        long hedgedCount = getHedged();
+        return String.format("%d of %d hedged (%.1f%%), %d won, after %.1f ms", hedgedCount, readCount,
+                readCount == 0 ? 0.0 : hedgedCount * 100.0 / readCount, getWon(), getDelay());
+    }
+}
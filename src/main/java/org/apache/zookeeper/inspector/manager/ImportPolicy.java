@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+/**
+ * What an import does with nodes which already exist
+ */
+public enum ImportPolicy {
+    /**
+     * Replace the data and ACLs of existing nodes with those from the file
+     */
+    OVERWRITE,
+    /**
+     * Leave existing nodes as they are
+     */
+    SKIP,
+    /**
+     * Replace the data and ACLs of existing nodes only if their data and ACL
+     * versions are still those recorded in the file, that is if nobody
+     * changed them since they were exported, and count them as conflicts
+     * otherwise
+     */
+    VERSION_CHECK
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of importing an {@link ExportFile}
+ */
+public class ImportResult {
+    private final long created;
+    private final long overwritten;
+    private final long skipped;
+    private final long conflicts;
+    private final long failed;
+    private final long elapsedNanos;
+
+    ImportResult(long created, long overwritten, long skipped, long conflicts, long failed, long elapsedNanos) {
+        this.created = created;
+        this.overwritten = overwritten;
+        this.skipped = skipped;
+        this.conflicts = conflicts;
+        this.failed = failed;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the number of nodes created
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * @return the number of existing nodes whose data and ACLs were replaced
+     */
+    public long getOverwritten() {
+        return overwritten;
+    }
+
+    /**
+     * @return the number of nodes left out: existing nodes with
+     *         {@link ImportPolicy#SKIP}, ephemeral nodes and zookeeper's own
+     *         nodes
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return the number of existing nodes not replaced because they changed
+     *         since the export, with {@link ImportPolicy#VERSION_CHECK}
+     */
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * @return the number of nodes which could not be imported
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the number of nodes read from the file
+     */
+    public long getTotal() {
+        return created + overwritten + skipped + conflicts + failed;
+    }
+
+    /**
+     * @return the nodes read from the file per second
+     */
+    public double getNodesPerSecond() {
+        return elapsedNanos > 0 ? getTotal() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Imported %d nodes in %.1f s (%.0f nodes/s): %d created, %d overwritten, "
+                        + "%d skipped, %d conflicts, %d failed", getTotal(), elapsedNanos / 1e9,
+                getNodesPerSecond(), created, overwritten, skipped, conflicts, failed);
+    }
+}
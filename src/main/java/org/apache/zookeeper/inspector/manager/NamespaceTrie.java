@@ -0,0 +1,680 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * A compact in-memory copy of a zookeeper namespace, for holding millions of
+ * crawled nodes.
+ * <p>
+ * Nodes are numbered with int ids and stored as a trie: each node holds the
+ * id of its parent, the id of its name and its children's ids in an int array
+ * sorted by name, so full paths are never stored but rebuilt on demand. Names
+ * are interned, so a name such as "config" shared by many nodes is held once.
+ * The fields of each node's {@link Stat} are held in parallel primitive
+ * arrays indexed by node id rather than in {@link Stat} objects.
+ * <p>
+ * Memory per node, with compressed object pointers:
+ * <ul>
+ * <li>84 bytes in the node arrays: 4 each for the parent, name, children
+ * array reference and child count, 68 for the {@link Stat} fields</li>
+ * <li>4 bytes for its id in its parent's children array, plus up to half as
+ * much again of spare capacity, and a 16 byte header for the children array
+ * of each node with children</li>
+ * <li>for each distinct name, its {@link String}, about 40 bytes plus one
+ * per Latin-1 character, and 16 bytes of interning table, reference and
+ * reference count</li>
+ * </ul>
+ * The node and name arrays grow by half when full, and ids and names freed by
+ * removed nodes are reused. A namespace of 2 million nodes with distinct ten
+ * character names thus takes about 320 MB, where a 60 character
+ * {@link String} path, a {@link Stat} and a hash map entry per node take
+ * about 450 MB, and the gap widens as paths get longer and names repeat
+ * more. Paths are rebuilt with a walk up the trie and names are compared by
+ * binary search, so lookups cost a little more than with full paths, which
+ * suits crawled copies of large namespaces rather than hot caches. The actual
+ * footprint is given by {@link #estimateMemory()}.
+ * <p>
+ * The store is safe for use by several threads: reads share a read lock and
+ * changes take the write lock. Ids are only stable while the node exists: the
+ * id of a removed node may be given to a node added later.
+ */
+public class NamespaceTrie {
+    /**
+     * The id of the root node, "/"
+     */
+    public static final int ROOT = 0;
+
+    /**
+     * Returned for nodes which are not in the store
+     */
+    public static final int NO_NODE = -1;
+
+    private static final int FREE = -2;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[] parents;
+    private int[] nameIds;
+    private int[][] children;
+    private int[] childCounts;
+    private long[] czxids;
+    private long[] mzxids;
+    private long[] pzxids;
+    private long[] ctimes;
+    private long[] mtimes;
+    private long[] ephemeralOwners;
+    private int[] versions;
+    private int[] cversions;
+    private int[] aversions;
+    private int[] dataLengths;
+    private int[] numChildren;
+    private final BitSet statKnown = new BitSet();
+    private int idLimit;
+    private int size;
+    private int[] freeIds = new int[0];
+    private int freeIdCount;
+
+    private String[] names;
+    private int[] nameRefs;
+    private int[] nameTable;
+    private int nameLimit;
+    private int nameCount;
+    private int[] freeNames = new int[0];
+    private int freeNameCount;
+
+    /**
+     * Creates a store holding only the root node, without its {@link Stat}
+     */
+    public NamespaceTrie() {
+        clear();
+    }
+
+    /**
+     * Removes all nodes but the root, and forgets the root's {@link Stat}
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            parents = new int[INITIAL_CAPACITY];
+            nameIds = new int[INITIAL_CAPACITY];
+            children = new int[INITIAL_CAPACITY][];
+            childCounts = new int[INITIAL_CAPACITY];
+            czxids = new long[INITIAL_CAPACITY];
+            mzxids = new long[INITIAL_CAPACITY];
+            pzxids = new long[INITIAL_CAPACITY];
+            ctimes = new long[INITIAL_CAPACITY];
+            mtimes = new long[INITIAL_CAPACITY];
+            ephemeralOwners = new long[INITIAL_CAPACITY];
+            versions = new int[INITIAL_CAPACITY];
+            cversions = new int[INITIAL_CAPACITY];
+            aversions = new int[INITIAL_CAPACITY];
+            dataLengths = new int[INITIAL_CAPACITY];
+            numChildren = new int[INITIAL_CAPACITY];
+            statKnown.clear();
+            idLimit = 0;
+            size = 0;
+            freeIdCount = 0;
+            names = new String[INITIAL_CAPACITY];
+            nameRefs = new int[INITIAL_CAPACITY];
+            nameTable = new int[INITIAL_CAPACITY * 2];
+            nameLimit = 0;
+            nameCount = 0;
+            freeNameCount = 0;
+            allocateNode(NO_NODE, intern(""));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a node, along with any of its ancestors not in the store yet, or
+     * updates the {@link Stat} of a node already in the store
+     * 
+     * @param nodePath - the path to the node
+     * @param stat     - the {@link Stat} of the node, or null to keep the
+     *                 {@link Stat} already known, if any
+     * @return the id of the node
+     */
+    public int put(String nodePath, Stat stat) {
+        lock.writeLock().lock();
+        try {
+            int id = ROOT;
+            int start = 1;
+            while (start < nodePath.length()) {
+                int end = nodePath.indexOf('/', start);
+                end = end < 0 ? nodePath.length() : end;
+                String name = nodePath.substring(start, end);
+                int index = childIndex(id, name);
+                if (index >= 0) {
+                    id = children[id][index];
+                } else {
+                    int child = allocateNode(id, intern(name));
+                    insertChild(id, -index - 1, child);
+                    id = child;
+                }
+                start = end + 1;
+            }
+            if (stat != null) {
+                setStat(id, stat);
+            }
+            return id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a node and all of its descendants. The root cannot be removed.
+     * 
+     * @param nodePath - the path to the node
+     * @return true if the node was in the store
+     */
+    public boolean remove(String nodePath) {
+        lock.writeLock().lock();
+        try {
+            int id = findNode(nodePath);
+            if (id == NO_NODE || id == ROOT) {
+                return false;
+            }
+            int parent = parents[id];
+            int index = childIndex(parent, names[nameIds[id]]);
+            System.arraycopy(children[parent], index + 1, children[parent], index,
+                    childCounts[parent] - index - 1);
+            childCounts[parent]--;
+            // free the subtree with an explicit stack, however deep it is
+            int[] stack = { id };
+            int top = 1;
+            while (top > 0) {
+                int node = stack[--top];
+                int count = childCounts[node];
+                if (top + count > stack.length) {
+                    stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + count));
+                }
+                if (count > 0) {
+                    System.arraycopy(children[node], 0, stack, top, count);
+                    top += count;
+                }
+                freeNode(node);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param nodePath - the path to the node
+     * @return the id of the node, or {@link #NO_NODE} if it is not in the
+     *         store
+     */
+    public int find(String nodePath) {
+        lock.readLock().lock();
+        try {
+            return findNode(nodePath);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id - the id of a node
+     * @return whether a node with this id is in the store
+     */
+    public boolean contains(int id) {
+        lock.readLock().lock();
+        try {
+            return id >= 0 && id < idLimit && parents[id] != FREE;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id - the id of a node in the store
+     * @return the path to the node
+     */
+    public String getPath(int id) {
+        lock.readLock().lock();
+        try {
+            if (id == ROOT) {
+                return "/";
+            }
+            int length = 0;
+            for (int node = id; node != ROOT; node = parents[node]) {
+                length += names[nameIds[node]].length() + 1;
+            }
+            char[] path = new char[length];
+            for (int node = id; node != ROOT; node = parents[node]) {
+                String name = names[nameIds[node]];
+                length -= name.length();
+                name.getChars(0, name.length(), path, length);
+                path[--length] = '/';
+            }
+            return new String(path);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id - the id of a node in the store
+     * @return the name of the node, the last segment of its path
+     */
+    public String getName(int id) {
+        lock.readLock().lock();
+        try {
+            return names[nameIds[id]];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id - the id of a node in the store
+     * @return the id of the parent of the node, or {@link #NO_NODE} for the
+     *         root
+     */
+    public int getParent(int id) {
+        lock.readLock().lock();
+        try {
+            return parents[id];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id - the id of a node in the store
+     * @return the ids of the children of the node in the store, ordered by
+     *         name
+     */
+    public int[] getChildren(int id) {
+        lock.readLock().lock();
+        try {
+            int count = childCounts[id];
+            return count == 0 ? new int[0] : Arrays.copyOf(children[id], count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id    - the id of a node in the store
+     * @param order - the {@link ChildrenOrder} to list the children in
+     * @return the names of the children of the node in the store
+     */
+    public List<String> getChildNames(int id, ChildrenOrder order) {
+        String[] childNames;
+        lock.readLock().lock();
+        try {
+            childNames = new String[childCounts[id]];
+            for (int i = 0; i < childNames.length; i++) {
+                childNames[i] = names[nameIds[children[id][i]]];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (order == ChildrenOrder.NATURAL) {
+            int[] permutation = NaturalOrder.permutation(childNames);
+            String[] ordered = new String[childNames.length];
+            for (int i = 0; i < ordered.length; i++) {
+                ordered[i] = childNames[permutation[i]];
+            }
+            childNames = ordered;
+        }
+        return Collections.unmodifiableList(Arrays.asList(childNames));
+    }
+
+    /**
+     * @param id - the id of a node in the store
+     * @return a new {@link Stat} for the node, or null if its {@link Stat} is
+     *         not known
+     */
+    public Stat getStat(int id) {
+        lock.readLock().lock();
+        try {
+            if (!statKnown.get(id)) {
+                return null;
+            }
+            return new Stat(czxids[id], mzxids[id], ctimes[id], mtimes[id], versions[id], cversions[id],
+                    aversions[id], ephemeralOwners[id], dataLengths[id], numChildren[id], pzxids[id]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id - the id of a node in the store
+     * @return the data length from the {@link Stat} of the node, or 0 if it
+     *         is not known
+     */
+    public int getDataLength(int id) {
+        lock.readLock().lock();
+        try {
+            return dataLengths[id];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id - the id of a node in the store
+     * @return the modified zxid from the {@link Stat} of the node, or 0 if it
+     *         is not known
+     */
+    public long getMzxid(int id) {
+        lock.readLock().lock();
+        try {
+            return mzxids[id];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of nodes in the store, the root included
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return one more than the highest id in use, for scanning all nodes
+     *         with {@link #contains(int)}
+     */
+    public int getIdLimit() {
+        lock.readLock().lock();
+        try {
+            return idLimit;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct names held
+     */
+    public int getNameCount() {
+        lock.readLock().lock();
+        try {
+            return nameCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return an estimate of the bytes taken by the store, with compressed
+     *         object pointers
+     */
+    public long estimateMemory() {
+        lock.readLock().lock();
+        try {
+            long bytes = (long) parents.length * (4 + 4 + 4 + 4 + 6 * 8 + 5 * 4) + statKnown.size() / 8;
+            for (int id = 0; id < idLimit; id++) {
+                if (children[id] != null) {
+                    bytes += 16 + 4L * children[id].length;
+                }
+            }
+            bytes += (long) names.length * (4 + 4) + 4L * nameTable.length;
+            for (int i = 0; i < nameLimit; i++) {
+                if (names[i] != null) {
+                    // String with a Latin-1 byte array, both 8 byte aligned
+                    bytes += 24 + ((16 + names[i].length() + 7) & ~7);
+                }
+            }
+            return bytes + 4L * (freeIds.length + freeNames.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int findNode(String nodePath) {
+        int id = ROOT;
+        int start = 1;
+        while (start < nodePath.length()) {
+            int end = nodePath.indexOf('/', start);
+            end = end < 0 ? nodePath.length() : end;
+            int index = childIndex(id, nodePath.substring(start, end));
+            if (index < 0) {
+                return NO_NODE;
+            }
+            id = children[id][index];
+            start = end + 1;
+        }
+        return id;
+    }
+
+    /**
+     * @return the index of the named child in the children array of the
+     *         parent, or (-(insertion point) - 1) if there is no such child
+     */
+    private int childIndex(int parent, String name) {
+        int[] ids = children[parent];
+        int low = 0;
+        int high = childCounts[parent] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = names[nameIds[ids[mid]]].compareTo(name);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insertChild(int parent, int index, int child) {
+        int count = childCounts[parent];
+        int[] ids = children[parent];
+        if (ids == null) {
+            ids = new int[2];
+        } else if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count + (count >> 1));
+        }
+        System.arraycopy(ids, index, ids, index + 1, count - index);
+        ids[index] = child;
+        children[parent] = ids;
+        childCounts[parent] = count + 1;
+    }
+
+    private void setStat(int id, Stat stat) {
+        czxids[id] = stat.getCzxid();
+        mzxids[id] = stat.getMzxid();
+        pzxids[id] = stat.getPzxid();
+        ctimes[id] = stat.getCtime();
+        mtimes[id] = stat.getMtime();
+        ephemeralOwners[id] = stat.getEphemeralOwner();
+        versions[id] = stat.getVersion();
+        cversions[id] = stat.getCversion();
+        aversions[id] = stat.getAversion();
+        dataLengths[id] = stat.getDataLength();
+        numChildren[id] = stat.getNumChildren();
+        statKnown.set(id);
+    }
+
+    private int allocateNode(int parent, int nameId) {
+        int id;
+        if (freeIdCount > 0) {
+            id = freeIds[--freeIdCount];
+        } else {
+            if (idLimit == parents.length) {
+                growNodes(idLimit + (idLimit >> 1));
+            }
+            id = idLimit++;
+        }
+        parents[id] = parent;
+        nameIds[id] = nameId;
+        children[id] = null;
+        childCounts[id] = 0;
+        czxids[id] = 0;
+        mzxids[id] = 0;
+        pzxids[id] = 0;
+        ctimes[id] = 0;
+        mtimes[id] = 0;
+        ephemeralOwners[id] = 0;
+        versions[id] = 0;
+        cversions[id] = 0;
+        aversions[id] = 0;
+        dataLengths[id] = 0;
+        numChildren[id] = 0;
+        statKnown.clear(id);
+        size++;
+        return id;
+    }
+
+    private void freeNode(int id) {
+        release(nameIds[id]);
+        parents[id] = FREE;
+        children[id] = null;
+        childCounts[id] = 0;
+        statKnown.clear(id);
+        if (freeIdCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, Math.max(16, freeIdCount * 2));
+        }
+        freeIds[freeIdCount++] = id;
+        size--;
+    }
+
+    private void growNodes(int capacity) {
+        parents = Arrays.copyOf(parents, capacity);
+        nameIds = Arrays.copyOf(nameIds, capacity);
+        children = Arrays.copyOf(children, capacity);
+        childCounts = Arrays.copyOf(childCounts, capacity);
+        czxids = Arrays.copyOf(czxids, capacity);
+        mzxids = Arrays.copyOf(mzxids, capacity);
+        pzxids = Arrays.copyOf(pzxids, capacity);
+        ctimes = Arrays.copyOf(ctimes, capacity);
+        mtimes = Arrays.copyOf(mtimes, capacity);
+        ephemeralOwners = Arrays.copyOf(ephemeralOwners, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        cversions = Arrays.copyOf(cversions, capacity);
+        aversions = Arrays.copyOf(aversions, capacity);
+        dataLengths = Arrays.copyOf(dataLengths, capacity);
+        numChildren = Arrays.copyOf(numChildren, capacity);
+    }
+
+    /**
+     * @return the id of the name, counting one more reference to it
+     */
+    private int intern(String name) {
+        int mask = nameTable.length - 1;
+        int slot = hash(name) & mask;
+        while (nameTable[slot] != 0) {
+            int nameId = nameTable[slot] - 1;
+            if (names[nameId].equals(name)) {
+                nameRefs[nameId]++;
+                return nameId;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int nameId;
+        if (freeNameCount > 0) {
+            nameId = freeNames[--freeNameCount];
+        } else {
+            if (nameLimit == names.length) {
+                names = Arrays.copyOf(names, nameLimit + (nameLimit >> 1));
+                nameRefs = Arrays.copyOf(nameRefs, names.length);
+            }
+            nameId = nameLimit++;
+        }
+        names[nameId] = name;
+        nameRefs[nameId] = 1;
+        nameTable[slot] = nameId + 1;
+        if (++nameCount * 2 > nameTable.length) {
+            rehashNames(nameTable.length * 2);
+        }
+        return nameId;
+    }
+
+    /**
+     * Drops one reference to a name, and forgets the name once unused
+     */
+    private void release(int nameId) {
+        if (--nameRefs[nameId] > 0) {
+            return;
+        }
+        int mask = nameTable.length - 1;
+        int slot = hash(names[nameId]) & mask;
+        while (nameTable[slot] != nameId + 1) {
+            slot = (slot + 1) & mask;
+        }
+        // close the gap so that no probe sequence is broken, moving back each
+        // following entry which may not sit between its home slot and here
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            int entry = nameTable[next];
+            if (entry == 0) {
+                break;
+            }
+            int home = hash(names[entry - 1]) & mask;
+            boolean between = slot <= next ? slot < home && home <= next : slot < home || home <= next;
+            if (!between) {
+                nameTable[slot] = entry;
+                slot = next;
+            }
+        }
+        nameTable[slot] = 0;
+        names[nameId] = null;
+        nameCount--;
+        if (freeNameCount == freeNames.length) {
+            freeNames = Arrays.copyOf(freeNames, Math.max(16, freeNameCount * 2));
+        }
+        freeNames[freeNameCount++] = nameId;
+    }
+
+    private void rehashNames(int capacity) {
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        for (int nameId = 0; nameId < nameLimit; nameId++) {
+            if (names[nameId] != null) {
+                int slot = hash(names[nameId]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = nameId + 1;
+            }
+        }
+        nameTable = table;
+    }
+
+    private static int hash(String name) {
+        int h = name.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
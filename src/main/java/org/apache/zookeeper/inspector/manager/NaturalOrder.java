@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sorts child names into {@link ChildrenOrder#NATURAL} order.
+ * <p>
+ * Each name is parsed once, into the rank of its prefix among all distinct
+ * prefixes and the number it ends with. Rank, number and the position of the
+ * name are then packed into a single long per child, so the sort itself is a
+ * sort of a primitive array and never compares strings. Only when the three
+ * do not fit into 63 bits, which takes names ending with numbers of well over
+ * ten digits, is a comparator sort used instead.
+ */
+final class NaturalOrder {
+    /**
+     * The most trailing digits parsed as a number, so that it always fits
+     * into a long. Any digits before them are part of the prefix.
+     */
+    static final int MAX_SUFFIX_DIGITS = 18;
+
+    private NaturalOrder() {
+    }
+
+    /**
+     * @param sortedNames - names in {@link ChildrenOrder#LEXICOGRAPHIC} order
+     * @return the indices of the names in {@link ChildrenOrder#NATURAL} order
+     */
+    static int[] permutation(String[] sortedNames) {
+        int n = sortedNames.length;
+        if (n == 0) {
+            return new int[0];
+        }
+        String[] prefixes = new String[n];
+        long[] suffixes = new long[n];
+        long maxSuffix = 0;
+        for (int i = 0; i < n; i++) {
+            String name = sortedNames[i];
+            int start = suffixStart(name);
+            prefixes[i] = name.substring(0, start);
+            suffixes[i] = suffixKey(name, start);
+            maxSuffix = Math.max(maxSuffix, suffixes[i]);
+        }
+        Map<String, Integer> ranks = new HashMap<>();
+        for (String prefix : prefixes) {
+            ranks.put(prefix, 0);
+        }
+        String[] distinct = ranks.keySet().toArray(new String[0]);
+        Arrays.sort(distinct);
+        for (int r = 0; r < distinct.length; r++) {
+            ranks.put(distinct[r], r);
+        }
+
+        int[] order = new int[n];
+        int indexBits = bits(n - 1);
+        int suffixBits = bits(maxSuffix);
+        if (bits(distinct.length - 1) + suffixBits + indexBits <= 63) {
+            // as the names are in lexicographic order, ties on prefix and
+            // number are broken lexicographically by the index in the low bits
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = ((long) ranks.get(prefixes[i]) << (suffixBits + indexBits))
+                        | (suffixes[i] << indexBits) | i;
+            }
+            Arrays.sort(keys);
+            long indexMask = (1L << indexBits) - 1;
+            for (int k = 0; k < n; k++) {
+                order[k] = (int) (keys[k] & indexMask);
+            }
+        } else {
+            int[] prefixRanks = new int[n];
+            Integer[] boxed = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                prefixRanks[i] = ranks.get(prefixes[i]);
+                boxed[i] = i;
+            }
+            Arrays.sort(boxed, (a, b) -> {
+                int cmp = Integer.compare(prefixRanks[a], prefixRanks[b]);
+                if (cmp == 0) {
+                    cmp = Long.compare(suffixes[a], suffixes[b]);
+                }
+                return cmp != 0 ? cmp : Integer.compare(a, b);
+            });
+            for (int k = 0; k < n; k++) {
+                order[k] = boxed[k];
+            }
+        }
+        return order;
+    }
+
+    /**
+     * @return the index of the number the name ends with, or the length of the
+     *         name if it does not end with a digit
+     */
+    static int suffixStart(String name) {
+        int start = name.length();
+        while (start > 0 && name.length() - start < MAX_SUFFIX_DIGITS) {
+            char c = name.charAt(start - 1);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            start--;
+        }
+        return start;
+    }
+
+    /**
+     * @return one more than the number the name ends with, or 0 if it does not
+     *         end with a digit, so that <code>lock</code> sorts before
+     *         <code>lock0</code>
+     */
+    static long suffixKey(String name, int suffixStart) {
+        return suffixStart == name.length() ? 0 : Long.parseLong(name.substring(suffixStart)) + 1;
+    }
+
+    private static int bits(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+}
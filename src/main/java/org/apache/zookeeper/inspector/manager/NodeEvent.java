@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import org.apache.zookeeper.Watcher.Event.EventType;
+
+/**
+ * The changes to a single node reported within one coalescing window of the
+ * {@link NodeEventDispatcher}
+ */
+public class NodeEvent {
+    private final String nodePath;
+    private final EventType type;
+    private final int count;
+    private final long time;
+
+    /**
+     * @param nodePath - the path of the node
+     * @param type     - the type of the latest event
+     * @param count    - the number of events coalesced into this one
+     * @param time     - the time of the latest event, in milliseconds since
+     *                 the epoch
+     */
+    public NodeEvent(String nodePath, EventType type, int count, long time) {
+        this.nodePath = nodePath;
+        this.type = type;
+        this.count = count;
+        this.time = time;
+    }
+
+    /**
+     * @return the path of the node
+     */
+    public String getNodePath() {
+        return nodePath;
+    }
+
+    /**
+     * @return the type of the latest event, which tells the state the node
+     *         was left in
+     */
+    public EventType getType() {
+        return type;
+    }
+
+    /**
+     * @return the number of events coalesced into this one
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the time of the latest event, in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    NodeEvent merge(EventType type, long time) {
+        return new NodeEvent(nodePath, type, count + 1, time);
+    }
+
+    @Override
+    public String toString() {
+        return nodePath + " " + type + (count > 1 ? " (" + count + " events)" : "");
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.inspector.logger.LoggerFactory;
+
+/**
+ * Hands watch events over from the zookeeper event thread to
+ * {@link NodeListener}s. Events are queued without blocking the event
+ * thread, and delivered on a dedicated thread once per window, the events
+ * of each node within the window coalesced into one {@link NodeEvent}. A
+ * burst of thousands of events thus reaches a listener as one batch holding
+ * one event per node changed.
+ */
+public class NodeEventDispatcher {
+    /**
+     * The time, in milliseconds, over which events are coalesced
+     */
+    public static final int COALESCE_WINDOW = 200;
+
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ZooInspector node events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Queues an event for the listener, without blocking
+     * 
+     * @param listener - the listener to deliver the event to
+     * @param event    - the event to deliver
+     */
+    public void dispatch(NodeListener listener, WatchedEvent event) {
+        queue.add(new Pending(listener, event, System.currentTimeMillis()));
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.schedule(this::deliver, COALESCE_WINDOW, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // shut down, the event is dropped
+                scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Stops delivering events. Events still queued are dropped.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        queue.clear();
+    }
+
+    private void deliver() {
+        // events queued from here on are left for the next window
+        scheduled.set(false);
+        Map<NodeListener, Map<String, NodeEvent>> batches = new LinkedHashMap<>();
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            Map<String, NodeEvent> batch = batches.computeIfAbsent(pending.listener, l -> new LinkedHashMap<>());
+            String nodePath = pending.event.getPath();
+            NodeEvent previous = batch.get(nodePath);
+            batch.put(nodePath, previous == null
+                    ? new NodeEvent(nodePath, pending.event.getType(), 1, pending.time)
+                    : previous.merge(pending.event.getType(), pending.time));
+        }
+        for (Map.Entry<NodeListener, Map<String, NodeEvent>> batch : batches.entrySet()) {
+            try {
+                batch.getKey().processEvents(new ArrayList<>(batch.getValue().values()));
+            } catch (RuntimeException e) {
+                LoggerFactory.getLogger().error("Error occurred delivering node events", e);
+            }
+        }
+    }
+
+    private static class Pending {
+        final NodeListener listener;
+        final WatchedEvent event;
+        final long time;
+
+        Pending(NodeListener listener, WatchedEvent event, long time) {
+            this.listener = listener;
+            this.event = event;
+            this.time = time;
+        }
+    }
+}
@@ -17,20 +17,18 @@
  */
 package org.apache.zookeeper.inspector.manager;
 
-import java.util.Map;
+import java.util.List;
 
 /**
  * A Listener for Events on zookeeper nodes
  */
 public interface NodeListener {
     /**
-     * @param nodePath
-     *            - the path of the node
-     * @param eventType
-     *            - the event type
-     * @param eventInfo
-     *            - a {@link Map} containing any other information about this
-     *            event
+     * Called from the {@link NodeEventDispatcher} thread, so implementations
+     * updating Swing components must hand over to the event dispatch thread.
+     *
+     * @param events - the events of one coalescing window, one for each node
+     *               changed, in the order the nodes first changed
      */
-    void processEvent(String nodePath, String eventType, Map<String, String> eventInfo);
+    void processEvents(List<NodeEvent> events);
 }
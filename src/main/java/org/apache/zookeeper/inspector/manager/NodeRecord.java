@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * A node as stored in an {@link ExportFile}: its path, {@link Stat}, ACLs and
+ * raw data
+ */
+public class NodeRecord {
+    private final String path;
+    private final Stat stat;
+    private final List<ACL> acls;
+    private final byte[] data;
+
+    /**
+     * @param path - the path to the node
+     * @param stat - the {@link Stat} of the node
+     * @param acls - the ACLs of the node
+     * @param data - the raw data of the node, may be null
+     */
+    public NodeRecord(String path, Stat stat, List<ACL> acls, byte[] data) {
+        this.path = path;
+        this.stat = stat;
+        this.acls = Collections.unmodifiableList(acls);
+        this.data = data;
+    }
+
+    /**
+     * @return the path to the node
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the {@link Stat} of the node. It is shared and must not be
+     *         modified.
+     */
+    public Stat getStat() {
+        return stat;
+    }
+
+    /**
+     * @return the ACLs of the node
+     */
+    public List<ACL> getACLs() {
+        return acls;
+    }
+
+    /**
+     * @return the raw data of the node, or null if it has none. The array is
+     *         shared and must not be modified.
+     */
+    public byte[] getData() {
+        return data;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import org.apache.zookeeper.ZooDefs.Perms;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * Everything the node viewers show about a single node, read from zookeeper
+ * once per selection and shared by all node viewers
+ */
+public class NodeSnapshot {
+    private static final String A_VERSION = "ACL Version";
+    private static final String C_TIME = "Creation Time";
+    private static final String C_VERSION = "Children Version";
+    private static final String CZXID = "Creation ID";
+    private static final String DATA_LENGTH = "Data Length";
+    private static final String EPHEMERAL_OWNER = "Ephemeral Owner";
+    private static final String M_TIME = "Last Modified Time";
+    private static final String MZXID = "Modified ID";
+    private static final String NUM_CHILDREN = "Number of Children";
+    private static final String PZXID = "Node ID";
+    private static final String VERSION = "Data Version";
+    private static final String ACL_PERMS = "Permissions";
+    private static final String ACL_SCHEME = "Scheme";
+    private static final String ACL_ID = "Id";
+
+    private final String nodePath;
+    private final byte[] data;
+    private final String decryptedData;
+    private final Stat stat;
+    private final List<ACL> acls;
+
+    /**
+     * @param nodePath      - the path to the node
+     * @param data          - the raw data of the node
+     * @param decryptedData - the data of the node, decrypted with the
+     *                      connection's data encryption manager
+     * @param stat          - the {@link Stat} returned with the data
+     * @param acls          - the ACLs of the node
+     */
+    public NodeSnapshot(String nodePath, byte[] data, String decryptedData, Stat stat, List<ACL> acls) {
+        this.nodePath = nodePath;
+        this.data = data;
+        this.decryptedData = decryptedData;
+        this.stat = stat;
+        this.acls = Collections.unmodifiableList(new ArrayList<>(acls));
+    }
+
+    /**
+     * @return the path to the node
+     */
+    public String getNodePath() {
+        return nodePath;
+    }
+
+    /**
+     * @return the raw data of the node. The array is shared and must not be
+     *         modified.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return the data of the node, decrypted with the connection's data
+     *         encryption manager
+     */
+    public String getDecryptedData() {
+        return decryptedData;
+    }
+
+    /**
+     * @return the {@link Stat} of the node. It is shared and must not be
+     *         modified.
+     */
+    public Stat getStat() {
+        return stat;
+    }
+
+    /**
+     * @return the ACLs of the node
+     */
+    public List<ACL> getACLList() {
+        return acls;
+    }
+
+    /**
+     * @return the number of children of the node
+     */
+    public int getNumChildren() {
+        return stat.getNumChildren();
+    }
+
+    /**
+     * @return the metaData for the node
+     */
+    public Map<String, String> getNodeMeta() {
+        return toNodeMeta(stat);
+    }
+
+    /**
+     * @return the ACLs set on the node
+     */
+    public List<Map<String, String>> getACLs() {
+        return toACLs(acls);
+    }
+
+    static Map<String, String> toNodeMeta(Stat s) {
+        Map<String, String> nodeMeta = new LinkedHashMap<>();
+        nodeMeta.put(A_VERSION, String.valueOf(s.getAversion()));
+        nodeMeta.put(C_TIME, String.valueOf(s.getCtime()));
+        nodeMeta.put(C_TIME + " (local)", new Date(s.getCtime()).toString());
+        nodeMeta.put(C_VERSION, String.valueOf(s.getCversion()));
+        nodeMeta.put(CZXID, String.valueOf(s.getCzxid()));
+        nodeMeta.put(DATA_LENGTH, String.valueOf(s.getDataLength()));
+        nodeMeta.put(EPHEMERAL_OWNER, String.valueOf(s.getEphemeralOwner()));
+        nodeMeta.put(M_TIME, String.valueOf(s.getMtime()));
+        nodeMeta.put(M_TIME + " (local)", new Date(s.getMtime()).toString());
+        nodeMeta.put(MZXID, String.valueOf(s.getMzxid()));
+        nodeMeta.put(NUM_CHILDREN, String.valueOf(s.getNumChildren()));
+        nodeMeta.put(PZXID, String.valueOf(s.getPzxid()));
+        nodeMeta.put(VERSION, String.valueOf(s.getVersion()));
+        return nodeMeta;
+    }
+
+    static List<Map<String, String>> toACLs(List<ACL> acls) {
+        List<Map<String, String>> returnACLs = new ArrayList<>();
+        for (ACL acl : acls) {
+            Map<String, String> aclMap = new LinkedHashMap<>();
+            aclMap.put(ACL_SCHEME, acl.getId().getScheme());
+            aclMap.put(ACL_ID, acl.getId().getId());
+            StringJoiner sb = new StringJoiner(", ");
+            int perms = acl.getPerms();
+
+            if ((perms & Perms.READ) == Perms.READ) {
+                sb.add("Read");
+            }
+
+            if ((perms & Perms.WRITE) == Perms.WRITE) {
+                sb.add("Write");
+            }
+            if ((perms & Perms.CREATE) == Perms.CREATE) {
+                sb.add("Create");
+            }
+            if ((perms & Perms.DELETE) == Perms.DELETE) {
+                sb.add("Delete");
+            }
+            if ((perms & Perms.ADMIN) == Perms.ADMIN) {
+                sb.add("Admin");
+            }
+            aclMap.put(ACL_PERMS, sb.toString());
+            returnACLs.add(aclMap);
+        }
+        return returnACLs;
+    }
+}
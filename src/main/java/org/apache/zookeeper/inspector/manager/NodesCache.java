@@ -1,69 +1,516 @@
 package org.apache.zookeeper.inspector.manager;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import org.apache.zookeeper.AddWatchMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.Watcher.Event.KeeperState;
 import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.ACL;
 import org.apache.zookeeper.data.Stat;
 import org.apache.zookeeper.inspector.logger.LoggerFactory;
+import org.apache.zookeeper.retry.RetryPolicy;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+/**
+ * A cache of the children and the {@link Stat} of zookeeper nodes. A single
+ * persistent recursive watch on the root covers every node, so loads set no
+ * watches of their own, nothing has to be re-armed after an event, and the
+ * server holds one watch for the whole tree. Entries are only dropped when
+ * the watch reports a change, so entries stay valid for the whole session and
+ * only the nodes which actually changed are fetched again.
+ * <p>
+ * A recursive watch reports created, deleted and changed nodes but not
+ * NodeChildrenChanged, so the creation or deletion of a node also drops the
+ * children and {@link Stat} of its parent, whose child count, children
+ * version and pzxid changed with it. Events missed while disconnected are
+ * not replayed when the watch is restored on reconnection, so everything is
+ * dropped then. Nothing is cached until the server has confirmed the watch,
+ * nor at all with a server older than 3.6, which has no persistent watches.
+ * <p>
+ * All loads use the asynchronous zookeeper API, so cache updates and watch
+ * events are both applied on the zookeeper event thread, in the order the
+ * server sent them. The synchronous methods must therefore never be called
+ * from a {@link Watcher} or a zookeeper callback.
+ * <p>
+ * With {@link HedgedReads}, a load the main session is slow to answer is
+ * also sent to another server. Its answer completes the load if it comes
+ * first, but is not cached, as it is not ordered with the watch events.
+ */
 public class NodesCache {
 
     public static final int CACHE_SIZE = 40000;
 
-    public static final int EXPIRATION_TIME = 100;
+    private final Cache<String, Children> nodes;
 
-    private final LoadingCache<String, List<String>> nodes;
+    private final Cache<String, Stat> stats;
+
+    private final ConcurrentMap<String, CompletableFuture<Children>> pendingNodes = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CompletableFuture<Stat>> pendingStats = new ConcurrentHashMap<>();
 
     private final ZooKeeper zooKeeper;
 
-    public NodesCache(ZooKeeper zooKeeper) {
+    private final WatchRegistry watchRegistry;
+
+    private final RetryPolicy retryPolicy;
+
+    private final HedgedReads hedgedReads;
+
+    private final Watcher watcher = this::process;
+
+    /**
+     * Whether the watch on the root is set, so that what is read can be
+     * cached. Only changed on the zookeeper event thread, in the order of
+     * the replies, so a reply seeing it set was read under the watch.
+     */
+    private volatile boolean watching;
+
+    private boolean disconnected;
+
+    /**
+     * @param zooKeeper     - the session to read with
+     * @param watchRegistry - the registry to watch the tree through
+     */
+    public NodesCache(ZooKeeper zooKeeper, WatchRegistry watchRegistry) {
+        this(zooKeeper, watchRegistry, null);
+    }
+
+    /**
+     * @param zooKeeper     - the session to read with
+     * @param watchRegistry - the registry to watch the tree through
+     * @param hedgedReads   - the hedging of the reads, or null not to hedge
+     *                      them
+     */
+    NodesCache(ZooKeeper zooKeeper, WatchRegistry watchRegistry, HedgedReads hedgedReads) {
         this.zooKeeper = zooKeeper;
+        this.watchRegistry = watchRegistry;
+        this.hedgedReads = hedgedReads;
+        this.retryPolicy = RetryPolicy.of(zooKeeper);
         this.nodes = CacheBuilder.newBuilder()
                 .maximumSize(CACHE_SIZE)
-                .expireAfterWrite(EXPIRATION_TIME, TimeUnit.MILLISECONDS)
-                .build(
-                        new CacheLoader<String, List<String>>() {
-                            @Override
-                            public List<String> load(String nodePath)  {
-                                return getChildren(nodePath);
-                            }
-                        }
-                );
+                .build();
+        this.stats = CacheBuilder.newBuilder()
+                .maximumSize(CACHE_SIZE)
+                .build();
+        // sent before any load, so every load is read under the watch once it
+        // is confirmed
+        addWatch(retryPolicy.start());
     }
 
+    /**
+     * @param nodePath - the path to the node
+     * @return the sorted, unmodifiable children of the node, or null if the
+     * node does not exist or the children could not be retrieved. The list is
+     * random access, so it can be searched with
+     * {@link Collections#binarySearch(List, Object)}.
+     */
     public List<String> getChildren(String nodePath) {
+        return await(getChildrenAsync(nodePath), "Error occurred retrieving child of node: " + nodePath);
+    }
+
+    /**
+     * @param nodePath - the path to the node
+     * @return a future for the sorted, unmodifiable children of the node. The
+     * future is completed on the zookeeper event thread unless the children
+     * were already cached.
+     */
+    public CompletableFuture<List<String>> getChildrenAsync(String nodePath) {
+        return getChildrenAsync(nodePath, ChildrenOrder.LEXICOGRAPHIC);
+    }
+
+    /**
+     * @param nodePath - the path to the node
+     * @param order    - the order to list the children in
+     * @return a future for the unmodifiable, random access children of the
+     * node, in the given order. The order is computed once per listing of the
+     * children and cached with them. The future is completed on the zookeeper
+     * event thread unless the children were already cached.
+     */
+    public CompletableFuture<List<String>> getChildrenAsync(String nodePath, ChildrenOrder order) {
+        Children children = nodes.getIfPresent(nodePath);
+        if (children != null) {
+            return CompletableFuture.completedFuture(children.get(order));
+        }
+        CompletableFuture<Children> future = new CompletableFuture<>();
+        CompletableFuture<Children> pending = pendingNodes.putIfAbsent(nodePath, future);
+        if (pending == null) {
+            loadChildren(nodePath, future, retryPolicy.start());
+        } else {
+            future = pending;
+        }
+        return future.thenApply(loaded -> loaded.get(order));
+    }
+
+    public String getNodeChild(String nodePath, int index) {
+        List<String> childNodes = getChildren(nodePath);
+        if (childNodes != null && index >= 0 && index < childNodes.size()) {
+            return childNodes.get(index);
+        }
+        return null;
+    }
+
+    /**
+     * @param nodePath - the path to the node
+     * @return the {@link Stat} of the node, or null if the node does not exist
+     * or the {@link Stat} could not be retrieved. The returned {@link Stat}
+     * may be shared and must not be modified.
+     */
+    public Stat getStat(String nodePath) {
+        return await(getStatAsync(nodePath), "Error occurred retrieving stat of node: " + nodePath);
+    }
+
+    /**
+     * @param nodePath - the path to the node
+     * @return a future for the {@link Stat} of the node, completed with null
+     * if the node does not exist. The {@link Stat} may be shared and must not
+     * be modified.
+     */
+    public CompletableFuture<Stat> getStatAsync(String nodePath) {
+        Stat stat = stats.getIfPresent(nodePath);
+        if (stat != null) {
+            return CompletableFuture.completedFuture(stat);
+        }
+        CompletableFuture<Stat> future = new CompletableFuture<>();
+        CompletableFuture<Stat> pending = pendingStats.putIfAbsent(nodePath, future);
+        if (pending != null) {
+            return pending;
+        }
+        loadStat(nodePath, future, retryPolicy.start());
+        return future;
+    }
+
+    /**
+     * Reads the data of a node, refreshing its cached {@link Stat} on the way.
+     *
+     * @param nodePath - the path to the node
+     * @return the data of the node, or null if the node does not exist or the
+     * data could not be retrieved
+     */
+    public byte[] getData(String nodePath) {
+        Pair<byte[], Stat> data = await(getDataAsync(nodePath), "Error occurred getting data for node: " + nodePath);
+        return data != null ? data.getKey() : null;
+    }
+
+    /**
+     * Reads the data of a node, refreshing its cached {@link Stat} on the way.
+     *
+     * @param nodePath - the path to the node
+     * @return a future for the data of the node and the {@link Stat} read with
+     * it, completed with null if the node does not exist
+     */
+    public CompletableFuture<Pair<byte[], Stat>> getDataAsync(String nodePath) {
+        CompletableFuture<Pair<byte[], Stat>> future = new CompletableFuture<>();
+        loadData(nodePath, future, retryPolicy.start());
+        return future;
+    }
+
+    /**
+     * Reads the ACLs of a node, refreshing its cached {@link Stat} on the way.
+     *
+     * @param nodePath - the path to the node
+     * @return the ACLs of the node, or null if the node does not exist or the
+     * ACLs could not be retrieved
+     */
+    public List<ACL> getACL(String nodePath) {
+        return await(getACLAsync(nodePath), "Error occurred retrieving ACLs of node: " + nodePath);
+    }
+
+    /**
+     * Reads the ACLs of a node, refreshing its cached {@link Stat} on the way.
+     *
+     * @param nodePath - the path to the node
+     * @return a future for the ACLs of the node, completed with null if the
+     * node does not exist
+     */
+    public CompletableFuture<List<ACL>> getACLAsync(String nodePath) {
+        CompletableFuture<List<ACL>> future = new CompletableFuture<>();
+        loadACL(nodePath, future, retryPolicy.start());
+        return future;
+    }
+
+    /**
+     * Drops the cached children and {@link Stat} of a node. Used after this
+     * client changed the node, as the watches may not have been processed yet
+     * when the write returns.
+     *
+     * @param nodePath - the path to the node
+     */
+    public void invalidate(String nodePath) {
+        nodes.invalidate(nodePath);
+        stats.invalidate(nodePath);
+    }
+
+    /**
+     * Drops all cached children and {@link Stat}s. Used after this client
+     * changed more nodes than are worth invalidating one by one.
+     */
+    public void invalidateAll() {
+        nodes.invalidateAll();
+        stats.invalidateAll();
+    }
+
+    private void addWatch(RetryPolicy.Retry retry) {
         try {
-            Stat s = zooKeeper.exists(nodePath, false);
-            if (s != null) {
-                List<String> children = this.zooKeeper.getChildren(nodePath, false);
-                Collections.sort(children);
-                return children;
+            watchRegistry.addWatch("/", watcher, AddWatchMode.PERSISTENT_RECURSIVE, (rc, path, ctx) -> {
+                Code code = Code.get(rc);
+                if (code == Code.OK) {
+                    watching = true;
+                } else if (!retry(code, retry, () -> addWatch(retry))) {
+                    LoggerFactory.getLogger().error("Error occurred adding the cache watch, nodes will not be cached",
+                            KeeperException.create(code, path));
+                }
+            });
+        } catch (IllegalStateException e) {
+            LoggerFactory.getLogger().warn("Nodes will not be cached: " + e.getMessage());
+        }
+    }
+
+    private void loadChildren(String nodePath, CompletableFuture<Children> future, RetryPolicy.Retry retry) {
+        long start = startRead(future, retry, session -> session.getChildren(nodePath, false,
+                (rc, path, ctx, children, stat) -> {
+                    if (rc == Code.OK.intValue()) {
+                        hedgedReads.answered(future, toChildren(children));
+                    }
+                }, null));
+        zooKeeper.getChildren(nodePath, false, (rc, path, ctx, children, stat) -> {
+            Code code = Code.get(rc);
+            if (retry(code, retry, () -> loadChildren(nodePath, future, retry))) {
+                return;
+            }
+            answered(start, retry);
+            pendingNodes.remove(nodePath, future);
+            if (code == Code.OK) {
+                Children loaded = toChildren(children);
+                if (watching) {
+                    nodes.put(nodePath, loaded);
+                }
+                recordStat(nodePath, stat);
+                future.complete(loaded);
+            } else {
+                future.completeExceptionally(KeeperException.create(code, nodePath));
             }
-        } catch (Exception e) {
-            LoggerFactory.getLogger().error(
-                    "Error occurred retrieving child of node: " + nodePath, e
-            );
+        }, null);
+    }
+
+    private void loadStat(String nodePath, CompletableFuture<Stat> future, RetryPolicy.Retry retry) {
+        long start = startRead(future, retry, session -> session.exists(nodePath, false, (rc, path, ctx, stat) -> {
+            if (rc == Code.OK.intValue()) {
+                hedgedReads.answered(future, stat);
+            }
+        }, null));
+        zooKeeper.exists(nodePath, false, (rc, path, ctx, stat) -> {
+            Code code = Code.get(rc);
+            if (retry(code, retry, () -> loadStat(nodePath, future, retry))) {
+                return;
+            }
+            answered(start, retry);
+            pendingStats.remove(nodePath, future);
+            if (code == Code.OK) {
+                recordStat(nodePath, stat);
+                future.complete(stat);
+            } else if (code == Code.NONODE) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(KeeperException.create(code, nodePath));
+            }
+        }, null);
+    }
+
+    private void loadData(String nodePath, CompletableFuture<Pair<byte[], Stat>> future, RetryPolicy.Retry retry) {
+        long start = startRead(future, retry, session -> session.getData(nodePath, false,
+                (rc, path, ctx, data, stat) -> {
+                    if (rc == Code.OK.intValue()) {
+                        hedgedReads.answered(future, new Pair<>(data, stat));
+                    }
+                }, null));
+        zooKeeper.getData(nodePath, false, (rc, path, ctx, data, stat) -> {
+            Code code = Code.get(rc);
+            if (retry(code, retry, () -> loadData(nodePath, future, retry))) {
+                return;
+            }
+            answered(start, retry);
+            if (code == Code.OK) {
+                recordStat(nodePath, stat);
+                future.complete(new Pair<>(data, stat));
+            } else if (code == Code.NONODE) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(KeeperException.create(code, nodePath));
+            }
+        }, null);
+    }
+
+    private void loadACL(String nodePath, CompletableFuture<List<ACL>> future, RetryPolicy.Retry retry) {
+        long start = startRead(future, retry, session -> session.getACL(nodePath, new Stat(),
+                (rc, path, ctx, acl, stat) -> {
+                    if (rc == Code.OK.intValue()) {
+                        hedgedReads.answered(future, acl);
+                    }
+                }, null));
+        zooKeeper.getACL(nodePath, new Stat(), (rc, path, ctx, acl, stat) -> {
+            Code code = Code.get(rc);
+            if (retry(code, retry, () -> loadACL(nodePath, future, retry))) {
+                return;
+            }
+            answered(start, retry);
+            if (code == Code.OK) {
+                recordStat(nodePath, stat);
+                future.complete(acl);
+            } else if (code == Code.NONODE) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(KeeperException.create(code, nodePath));
+            }
+        }, null);
+    }
+
+    /**
+     * Kept as a plain sorted array, which is both the most compact form for
+     * parents with hundreds of thousands of children and what lets
+     * getNodeIndex use a binary search
+     */
+    private static Children toChildren(List<String> children) {
+        String[] names = children.toArray(new String[0]);
+        Arrays.sort(names);
+        return new Children(names);
+    }
+
+    /**
+     * Schedules the hedge of a read about to be sent, if reads are hedged
+     *
+     * @return the start time of the read
+     */
+    private long startRead(CompletableFuture<?> future, RetryPolicy.Retry retry, Consumer<ZooKeeper> hedge) {
+        return hedgedReads == null ? 0 : hedgedReads.start(future, retry, hedge);
+    }
+
+    private void answered(long start, RetryPolicy.Retry retry) {
+        if (hedgedReads != null) {
+            hedgedReads.answered(start, retry);
         }
-        return null;
     }
 
-    public String getNodeChild(String nodePath, int index) {
-        List<String> childNodes;
+    /**
+     * Caches a {@link Stat} read from the server, if the watch which would
+     * invalidate it is set. Only called on the zookeeper event thread.
+     */
+    private void recordStat(String nodePath, Stat stat) {
+        if (watching) {
+            stats.put(nodePath, stat);
+        }
+    }
+
+    private static boolean retry(Code code, RetryPolicy.Retry retry, Runnable request) {
+        return code == Code.CONNECTIONLOSS && retry.later(request);
+    }
+
+    private <T> T await(CompletableFuture<T> future, String errorMessage) {
         try {
-            childNodes = nodes.get(nodePath);
-            return childNodes.get(index);
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (ExecutionException e) {
-            LoggerFactory.getLogger().error(
-                    "Error occurred retrieving child " + index + "of node: " + nodePath, e
-            );
+            if (!(e.getCause() instanceof KeeperException.NoNodeException)) {
+                LoggerFactory.getLogger().error(errorMessage, e.getCause());
+            }
         }
         return null;
     }
 
+    /**
+     * The children of a node, as one sorted array, along with the permutation
+     * giving their {@link ChildrenOrder#NATURAL} order once it was asked for.
+     * Entries are replaced whenever the children change, that is whenever the
+     * children version of the node changes, so an order is computed at most
+     * once per version.
+     */
+    private static class Children {
+        private final String[] names;
+        private final List<String> sorted;
+        private volatile List<String> natural;
+
+        Children(String[] names) {
+            this.names = names;
+            this.sorted = Collections.unmodifiableList(Arrays.asList(names));
+        }
+
+        List<String> get(ChildrenOrder order) {
+            if (order == ChildrenOrder.LEXICOGRAPHIC) {
+                return sorted;
+            }
+            List<String> result = natural;
+            if (result == null) {
+                int[] permutation = NaturalOrder.permutation(names);
+                result = new PermutedList(names, permutation);
+                natural = result;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * An unmodifiable view of an array through a permutation of its indices
+     */
+    private static class PermutedList extends AbstractList<String> implements RandomAccess {
+        private final String[] names;
+        private final int[] permutation;
+
+        PermutedList(String[] names, int[] permutation) {
+            this.names = names;
+            this.permutation = permutation;
+        }
+
+        @Override
+        public String get(int index) {
+            return names[permutation[index]];
+        }
+
+        @Override
+        public int size() {
+            return permutation.length;
+        }
+    }
+
+    private void process(WatchedEvent event) {
+        String path = event.getPath();
+        switch (event.getType()) {
+            case NodeDataChanged:
+                stats.invalidate(path);
+                break;
+            case NodeCreated:
+            case NodeDeleted:
+                invalidate(path);
+                // the recursive watch sends no NodeChildrenChanged
+                invalidate(path.substring(0, Math.max(path.lastIndexOf('/'), 1)));
+                break;
+            case None:
+                if (event.getState() == KeeperState.Expired) {
+                    watching = false;
+                    invalidateAll();
+                } else if (event.getState() == KeeperState.Disconnected) {
+                    disconnected = true;
+                } else if (event.getState() == KeeperState.SyncConnected && disconnected) {
+                    // the watch is restored, but not the events missed
+                    disconnected = false;
+                    invalidateAll();
+                }
+                break;
+            default:
+                break;
+        }
+    }
 }
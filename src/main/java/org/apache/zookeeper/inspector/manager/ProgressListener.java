@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+/**
+ * A listener for the progress of an operation spanning many nodes
+ */
+public interface ProgressListener {
+    /**
+     * A listener which ignores all progress
+     */
+    ProgressListener NONE = (done, total) -> {
+    };
+
+    /**
+     * Called from the thread running the operation, so implementations
+     * updating Swing components must hand over to the event dispatch thread.
+     *
+     * @param done  - the number of nodes processed so far
+     * @param total - the number of nodes to process, as far as known so far
+     */
+    void progress(long done, long total);
+}
@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.Watcher.Event.KeeperState;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.inspector.logger.LoggerFactory;
+import org.apache.zookeeper.metrics.ZooKeeperMetrics;
+import org.apache.zookeeper.retry.RetryPolicy;
+import org.apache.zookeeper.retry.ZooKeeperRetry;
+
+/**
+ * Extra sessions for bulk reads, each connected to a single server of the
+ * ensemble, the servers of the connect string taken in turn.
+ * <p>
+ * A session sends its requests one after the other over one socket, so a
+ * crawl of a large subtree on the session the tree is browsed with would
+ * hold every click up behind it. Crawls run on these sessions instead,
+ * spread over different servers. A session of the pool may lag behind the
+ * main session, so it is synced on the crawled path first, to read what the
+ * main session wrote.
+ * <p>
+ * The sessions also take the reads hedged by {@link HedgedReads}.
+ * <p>
+ * A session which expires, after an outage longer than the session timeout,
+ * is replaced by a new session to the same server, so that the pool does not
+ * quietly shrink down to the main session.
+ */
+class ReadSessionPool {
+    private final List<ZooKeeperRetry> sessions = new CopyOnWriteArrayList<>();
+    private final List<String> servers = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final String chroot;
+    private final int sessionTimeout;
+    private final String authScheme;
+    private final String authData;
+    private final ZooKeeperMetrics metrics;
+    private int renewed;
+    private boolean closed;
+
+    /**
+     * @param connectString  - the connect string of the main session
+     * @param sessionTimeout - the session timeout, in milliseconds
+     * @param size           - the number of sessions to open
+     * @param authScheme     - the authentication scheme, or null
+     * @param authData       - the authentication data, or null for none
+     * @param metrics        - the metrics to record the requests of the
+     *                       sessions in
+     * @throws IOException - if a session could not be created
+     */
+    ReadSessionPool(String connectString, int sessionTimeout, int size, String authScheme, String authData,
+            ZooKeeperMetrics metrics) throws IOException {
+        int chrootIndex = connectString.indexOf('/');
+        this.chroot = chrootIndex < 0 ? "" : connectString.substring(chrootIndex);
+        this.sessionTimeout = sessionTimeout;
+        this.authScheme = authScheme;
+        this.authData = authData;
+        this.metrics = metrics;
+        String[] hosts = (chrootIndex < 0 ? connectString : connectString.substring(0, chrootIndex)).split(",");
+        try {
+            for (int i = 0; i < size; i++) {
+                String server = hosts[i % hosts.length].trim();
+                servers.add(server);
+                sessions.add(open(i));
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param connectString - a connect string
+     * @return the number of servers in the connect string
+     */
+    static int countServers(String connectString) {
+        int chrootIndex = connectString.indexOf('/');
+        return (chrootIndex < 0 ? connectString : connectString.substring(0, chrootIndex)).split(",").length;
+    }
+
+    /**
+     * Picks the next connected session, and syncs it with the leader on the
+     * given path, so that it reads at least what the main session has
+     * written
+     * 
+     * @param nodePath - the path about to be read
+     * @return a session, or null if none is connected
+     * @throws KeeperException      - if the sync failed
+     * @throws InterruptedException - if interrupted while syncing
+     */
+    ZooKeeper sync(String nodePath) throws KeeperException, InterruptedException {
+        ZooKeeper session = next();
+        if (session == null) {
+            return null;
+        }
+        final CountDownLatch synced = new CountDownLatch(1);
+        final int[] result = new int[1];
+        session.sync(nodePath, (rc, path, ctx) -> {
+            result[0] = rc;
+            synced.countDown();
+        }, null);
+        synced.await();
+        if (result[0] != Code.OK.intValue()) {
+            throw KeeperException.create(Code.get(result[0]), nodePath);
+        }
+        return session;
+    }
+
+    /**
+     * Picks the next connected session which is connected to another server
+     * than the given one, without syncing it
+     *
+     * @param server - the server to avoid, or null for any
+     * @return a session, or null if none is connected to another server
+     */
+    ZooKeeperRetry other(SocketAddress server) {
+        int start = next.getAndIncrement();
+        for (int i = 0; i < sessions.size(); i++) {
+            ZooKeeperRetry session = sessions.get(Math.floorMod(start + i, sessions.size()));
+            SocketAddress address = session.getServerAddress();
+            if (address != null && !address.equals(server) && session.getState().isConnected()) {
+                return session;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the states of the sessions, by server
+     */
+    String getStates() {
+        StringJoiner states = new StringJoiner(", ");
+        for (int i = 0; i < sessions.size(); i++) {
+            states.add(servers.get(i) + " " + sessions.get(i).getState());
+        }
+        synchronized (this) {
+            if (renewed > 0) {
+                states.add(renewed + " expired and renewed");
+            }
+        }
+        return states.toString();
+    }
+
+    /**
+     * Closes every session
+     */
+    synchronized void close() {
+        closed = true;
+        for (ZooKeeper session : sessions) {
+            try {
+                session.close();
+            } catch (Exception e) {
+                LoggerFactory.getLogger().warn("Error occurred closing a read session", e);
+            }
+        }
+    }
+
+    /**
+     * Opens the session at the given index of the pool, watched for its
+     * expiry
+     * 
+     * @param index - the index of the session in the pool
+     * @return the new session
+     * @throws IOException - if the session could not be created
+     */
+    private ZooKeeperRetry open(int index) throws IOException {
+        Watcher watcher = event -> {
+            if (event.getState() == KeeperState.Expired) {
+                renew(index);
+            }
+        };
+        ZooKeeperRetry session = new ZooKeeperRetry(servers.get(index) + chroot, sessionTimeout, watcher,
+                new RetryPolicy(), metrics);
+        if (authData != null && authData.length() > 0) {
+            session.addAuthInfo(authScheme, authData.getBytes());
+        }
+        return session;
+    }
+
+    /**
+     * Replaces the expired session at the given index with a new one
+     * 
+     * @param index - the index of the expired session in the pool
+     */
+    private synchronized void renew(int index) {
+        if (closed) {
+            return;
+        }
+        ZooKeeper expired = sessions.get(index);
+        try {
+            sessions.set(index, open(index));
+            renewed++;
+        } catch (IOException | RuntimeException e) {
+            LoggerFactory.getLogger().error("Error occurred renewing the expired read session to "
+                    + servers.get(index), e);
+            return;
+        }
+        try {
+            expired.close();
+        } catch (Exception e) {
+            LoggerFactory.getLogger().warn("Error occurred closing an expired read session", e);
+        }
+    }
+
+    private ZooKeeper next() {
+        int start = next.getAndIncrement();
+        for (int i = 0; i < sessions.size(); i++) {
+            ZooKeeper session = sessions.get(Math.floorMod(start + i, sessions.size()));
+            if (session.getState().isConnected()) {
+                return session;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,461 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import org.apache.zookeeper.AddWatchMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.inspector.encryption.DataEncryptionManager;
+import org.apache.zookeeper.inspector.logger.LoggerFactory;
+
+/**
+ * A searchable copy of the names and data of the nodes of a subtree.
+ * <p>
+ * The nodes are kept in a {@link NamespaceTrie}, and their data, decoded with
+ * the connection's {@link DataEncryptionManager}, in an array indexed by node
+ * id. Names and data are split into lower case tokens of letters and digits,
+ * and an inverted index maps every token to the ids of the nodes containing
+ * it, so a text query is answered from the index alone: each word of the
+ * query matches the tokens starting with it, and a query of several words
+ * only matches nodes where they appear together as typed. Regular expressions
+ * cannot use the index, and are matched against the names and data held in
+ * memory in a parallel scan over all nodes.
+ * <p>
+ * The index is built by crawling the subtree, and kept up to date by a
+ * persistent recursive watch on its root, set before the crawl starts:
+ * created and changed nodes are read again and re-indexed, and deleted nodes
+ * are dropped. Nodes the session may not read are left out with their
+ * subtrees. The data of every node is held, so the index takes about as
+ * much memory as the data of the subtree, on top of the
+ * {@link NamespaceTrie}.
+ */
+public class SearchIndex implements Watcher {
+    /**
+     * Tokens longer than this are cut, so that a large blob of base64 does
+     * not bloat the index
+     */
+    public static final int MAX_TOKEN_LENGTH = 64;
+
+    private final ZooKeeper zooKeeper;
+    private final WatchRegistry watchRegistry;
+    private final DataEncryptionManager encryptionManager;
+    private final String rootPath;
+    private final NamespaceTrie namespace = new NamespaceTrie();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+    private final Set<String> deletedWhileBuilding = ConcurrentHashMap.newKeySet();
+    private String[] names = new String[1024];
+    private String[] texts = new String[1024];
+    private int indexed;
+    private volatile long unreadable;
+    private volatile boolean building;
+    private volatile boolean closed;
+
+    /**
+     * @param zooKeeper         - the session to read with
+     * @param watchRegistry     - the registry to watch the subtree through
+     * @param encryptionManager - the {@link DataEncryptionManager} to decode
+     *                          the data with
+     * @param rootPath          - the root of the subtree to index
+     */
+    SearchIndex(ZooKeeper zooKeeper, WatchRegistry watchRegistry, DataEncryptionManager encryptionManager,
+            String rootPath) {
+        this.zooKeeper = zooKeeper;
+        this.watchRegistry = watchRegistry;
+        this.encryptionManager = encryptionManager;
+        this.rootPath = rootPath;
+    }
+
+    /**
+     * Gives the session to crawl with
+     */
+    interface CrawlSession {
+        /**
+         * @return a session which has read at least up to the moment it is
+         *         asked for, e.g. synced
+         * @throws KeeperException      - if the session could not be synced
+         * @throws InterruptedException - if interrupted while syncing
+         */
+        ZooKeeper get() throws KeeperException, InterruptedException;
+    }
+
+    /**
+     * Watches the subtree and crawls it into the index
+     * 
+     * @param crawlSession - gives the session to crawl with, asked for once
+     *                     the watch is set, so that no change is missed
+     *                     between the two
+     * @param listener     - the {@link ProgressListener} to report the nodes
+     *                     crawled to
+     * @return the number of nodes crawled
+     * @throws KeeperException      - if a node could not be read
+     * @throws IOException          - if the crawl failed
+     * @throws InterruptedException - if the build was cancelled
+     */
+    long build(CrawlSession crawlSession, ProgressListener listener)
+            throws KeeperException, IOException, InterruptedException {
+        building = true;
+        try {
+            watchRegistry.addWatch(rootPath, this, AddWatchMode.PERSISTENT_RECURSIVE);
+            final SubtreeCrawler crawler = new SubtreeCrawler(crawlSession.get(), true, false, true);
+            long crawled = crawler.crawl(rootPath, node -> {
+                // a node deleted after the crawl read it must not come back
+                if (deletedWhileBuilding.isEmpty() || !isDeleted(node.getPath())) {
+                    index(node.getPath(), node.getStat(), decode(node.getData()));
+                }
+                listener.progress(crawler.getVisited(), crawler.getVisited() + crawler.getPending());
+            });
+            unreadable = crawler.getUnreadable();
+            return crawled;
+        } finally {
+            building = false;
+            deletedWhileBuilding.clear();
+        }
+    }
+
+    /**
+     * Stops keeping the index up to date, and removes its watch through the
+     * {@link WatchRegistry}, which drops the watch on the root from the
+     * server unless something else of the inspector still watches it
+     */
+    void close() {
+        if (closed) {
+            // closed when the build failed, and again when replaced
+            return;
+        }
+        closed = true;
+        try {
+            watchRegistry.removeWatch(rootPath, this);
+        } catch (Exception e) {
+            LoggerFactory.getLogger().warn("Error occurred removing the search index watch", e);
+        }
+    }
+
+    /**
+     * @return the path to the root of the subtree indexed
+     */
+    public String getRootPath() {
+        return rootPath;
+    }
+
+    /**
+     * @return the number of nodes the crawl left out, with their subtrees, as
+     *         the session may not read them
+     */
+    public long getUnreadableCount() {
+        return unreadable;
+    }
+
+    /**
+     * @return the number of nodes indexed
+     */
+    public int getNodeCount() {
+        lock.readLock().lock();
+        try {
+            return indexed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct tokens indexed
+     */
+    public int getTokenCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the nodes whose name or data contain every word of the query, each
+     * word matching the start of a token and the words matching together as
+     * typed, ignoring case
+     * 
+     * @param query - the text to look for
+     * @param limit - the most paths to return
+     * @return the paths to the nodes found, sorted
+     */
+    public List<String> search(String query, int limit) {
+        String phrase = query.trim().toLowerCase(Locale.ROOT);
+        Set<String> words = tokens(phrase);
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // a single word is matched by the index alone
+        boolean verify = words.size() > 1 || !words.contains(phrase);
+        lock.readLock().lock();
+        try {
+            BitSet found = null;
+            for (String word : words) {
+                BitSet matching = new BitSet();
+                for (Postings ids : postings.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+                    ids.addTo(matching);
+                }
+                if (found == null) {
+                    found = matching;
+                } else {
+                    found.and(matching);
+                }
+            }
+            List<Integer> ids = new ArrayList<>();
+            for (int id = found.nextSetBit(0); id >= 0 && ids.size() < limit; id = found.nextSetBit(id + 1)) {
+                if (!verify || names[id].toLowerCase(Locale.ROOT).contains(phrase)
+                        || texts[id].toLowerCase(Locale.ROOT).contains(phrase)) {
+                    ids.add(id);
+                }
+            }
+            return toPaths(ids.stream().mapToInt(Integer::intValue));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the nodes whose name or data match a regular expression, scanning
+     * all nodes in parallel
+     * 
+     * @param pattern - the {@link Pattern} to find in the names and data
+     * @param limit   - the most paths to return
+     * @return the paths to the nodes found, sorted
+     */
+    public List<String> searchRegex(final Pattern pattern, int limit) {
+        lock.readLock().lock();
+        try {
+            final String[] names = this.names;
+            final String[] texts = this.texts;
+            return toPaths(IntStream.range(0, namespace.getIdLimit()).parallel()
+                    .filter(id -> texts[id] != null
+                            && (pattern.matcher(names[id]).find() || pattern.matcher(texts[id]).find()))
+                    .unordered().limit(limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.zookeeper.Watcher#process(org.apache.zookeeper.WatchedEvent)
+     */
+    @Override
+    public void process(WatchedEvent event) {
+        final String path = event.getPath();
+        if (closed || path == null) {
+            return;
+        }
+        switch (event.getType()) {
+            case NodeCreated:
+            case NodeDataChanged:
+                deletedWhileBuilding.remove(path);
+                zooKeeper.getData(path, false, (rc, p, ctx, data, stat) -> {
+                    if (Code.get(rc) == Code.OK && !closed) {
+                        index(path, stat, decode(data));
+                    }
+                }, null);
+                break;
+            case NodeDeleted:
+                if (building) {
+                    deletedWhileBuilding.add(path);
+                }
+                remove(path);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private boolean isDeleted(String path) {
+        for (String p = path; p.length() > rootPath.length(); p = p.substring(0, p.lastIndexOf('/'))) {
+            if (deletedWhileBuilding.contains(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void index(String path, Stat stat, String text) {
+        lock.writeLock().lock();
+        try {
+            int id = namespace.find(path);
+            if (id != NamespaceTrie.NO_NODE && texts[id] != null) {
+                if (stat.getMzxid() < namespace.getMzxid(id)) {
+                    // the crawl read the node before an update already indexed
+                    return;
+                }
+                unindex(id);
+            }
+            id = namespace.put(path, stat);
+            if (id >= texts.length) {
+                int capacity = Math.max(id + 1, texts.length + (texts.length >> 1));
+                names = Arrays.copyOf(names, capacity);
+                texts = Arrays.copyOf(texts, capacity);
+            }
+            names[id] = namespace.getName(id);
+            texts[id] = text;
+            indexed++;
+            for (String token : tokens(names[id], text)) {
+                postings.computeIfAbsent(token, t -> new Postings()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(String path) {
+        lock.writeLock().lock();
+        try {
+            int id = namespace.find(path);
+            if (id == NamespaceTrie.NO_NODE) {
+                return;
+            }
+            List<Integer> stack = new ArrayList<>(Collections.singletonList(id));
+            while (!stack.isEmpty()) {
+                int node = stack.remove(stack.size() - 1);
+                for (int child : namespace.getChildren(node)) {
+                    stack.add(child);
+                }
+                if (texts[node] != null) {
+                    unindex(node);
+                }
+            }
+            namespace.remove(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(int id) {
+        for (String token : tokens(names[id], texts[id])) {
+            Postings ids = postings.get(token);
+            if (ids != null && ids.remove(id)) {
+                postings.remove(token);
+            }
+        }
+        names[id] = null;
+        texts[id] = null;
+        indexed--;
+    }
+
+    private List<String> toPaths(IntStream ids) {
+        List<String> paths = new ArrayList<>();
+        ids.forEachOrdered(id -> paths.add(namespace.getPath(id)));
+        Collections.sort(paths);
+        return paths;
+    }
+
+    private String decode(byte[] data) {
+        if (data == null) {
+            return "";
+        }
+        try {
+            String text = encryptionManager.decryptData(data);
+            return text != null ? text : "";
+        } catch (Exception e) {
+            // data which cannot be decoded is only found by name
+            return "";
+        }
+    }
+
+    /**
+     * @return the distinct lower case tokens of letters and digits of the
+     *         strings
+     */
+    private static Set<String> tokens(String... strings) {
+        Set<String> tokens = new HashSet<>();
+        for (String s : strings) {
+            int start = -1;
+            for (int i = 0; i <= s.length(); i++) {
+                boolean letterOrDigit = i < s.length() && Character.isLetterOrDigit(s.charAt(i));
+                if (letterOrDigit && start < 0) {
+                    start = i;
+                } else if (!letterOrDigit && start >= 0) {
+                    tokens.add(s.substring(start, Math.min(i, start + MAX_TOKEN_LENGTH)).toLowerCase(Locale.ROOT));
+                    start = -1;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * The ids of the nodes containing a token, as a sorted int array. Nodes
+     * are mostly indexed in the order of their ids, which appends.
+     */
+    private static class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            int index = size == 0 || ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                index = -index - 1;
+            } else if (index < size) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        /**
+         * @return true if no ids are left
+         */
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+            }
+            return size == 0;
+        }
+
+        void addTo(BitSet bits) {
+            for (int i = 0; i < size; i++) {
+                bits.set(ids[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.retry.RetryPolicy;
+
+/**
+ * Walks a node and all of its descendants with the asynchronous zookeeper
+ * API, handing each node to a {@link Visitor}.
+ * <p>
+ * Every node is read with a getChildren call, which also returns its
+ * {@link Stat}, and optionally with getData and getACL calls sent along with
+ * it. Many nodes are read at a time, up to a limit which an AIMD controller
+ * adapts to the ensemble: the limit grows by one for every limit's worth of
+ * replies, or, until the first sign of congestion, by one for every reply,
+ * and is halved when a request fails with a connection loss, or
+ * when the smoothed latency rises well above the lowest latency seen, which
+ * is the sign of requests queueing up on the server. A crawl thus speeds up
+ * until the ensemble starts to push back, and no further.
+ * <p>
+ * The crawl runs on the calling thread, which also runs the visitor, so no
+ * further nodes are requested while the visitor is busy: a slow consumer
+ * slows the crawl down rather than piling up nodes in memory. The nodes
+ * still to read are kept on a stack, so the subtree is walked depth first,
+ * and only the children of the nodes along the current path are held,
+ * however large the subtree. Nodes are visited in order, each before its
+ * children, and nodes deleted while the crawl runs are left out.
+ * Interrupting the calling thread cancels the crawl. A crawler runs a
+ * single crawl.
+ * <p>
+ * A node whose ACL does not let the session read it fails the crawl, unless
+ * the crawler skips unreadable nodes, in which case the node and its subtree
+ * are left out and counted.
+ */
+public class SubtreeCrawler {
+    /**
+     * The number of nodes read at a time when a crawl starts
+     */
+    public static final int INITIAL_CONCURRENCY = 8;
+
+    /**
+     * The most nodes read at a time
+     */
+    public static final int MAX_CONCURRENCY = 256;
+
+    /**
+     * The smoothed latency is taken as a sign of congestion once it exceeds
+     * this many times the lowest latency seen, plus {@link #LATENCY_SLACK_MS}
+     */
+    public static final int LATENCY_FACTOR = 3;
+
+    /**
+     * Added to the congestion latency, so that the tiny latencies of a
+     * nearby server do not make the controller jumpy
+     */
+    public static final int LATENCY_SLACK_MS = 5;
+
+    /**
+     * Handles the nodes found by a crawl
+     */
+    public interface Visitor {
+        /**
+         * @param node - the node, with its data if the crawler reads data and
+         *             its ACLs if the crawler reads ACLs
+         * @throws IOException          - to stop the crawl
+         * @throws InterruptedException - if the visitor was interrupted
+         */
+        void visit(NodeRecord node) throws IOException, InterruptedException;
+
+        /**
+         * Called instead of {@link #visit(NodeRecord)} for a node the session
+         * may not read, when the crawler skips unreadable nodes. The subtree
+         * of the node is left out.
+         *
+         * @param nodePath - the path to the node
+         */
+        default void unreadable(String nodePath) {
+        }
+    }
+
+    private final ZooKeeper zooKeeper;
+    private final RetryPolicy retryPolicy;
+    private final boolean readData;
+    private final boolean readACLs;
+    private final boolean skipUnreadable;
+    private final BlockingQueue<Reply> replies = new LinkedBlockingQueue<>();
+    private final Map<String, PendingNode> inFlight = new HashMap<>();
+    private final Deque<String> toVisit = new ArrayDeque<>();
+    private final ConcurrencyController controller = new ConcurrencyController();
+    private long visited;
+    private long unreadable;
+
+    /**
+     * Creates a crawler which fails on a node it may not read
+     *
+     * @param zooKeeper - the session to read with
+     * @param readData  - whether to read the data of each node
+     * @param readACLs  - whether to read the ACLs of each node
+     */
+    public SubtreeCrawler(ZooKeeper zooKeeper, boolean readData, boolean readACLs) {
+        this(zooKeeper, readData, readACLs, false);
+    }
+
+    /**
+     * @param zooKeeper      - the session to read with
+     * @param readData       - whether to read the data of each node
+     * @param readACLs       - whether to read the ACLs of each node
+     * @param skipUnreadable - whether to leave out the subtree of a node the
+     *                       session may not read, instead of failing
+     */
+    public SubtreeCrawler(ZooKeeper zooKeeper, boolean readData, boolean readACLs, boolean skipUnreadable) {
+        this.zooKeeper = zooKeeper;
+        this.retryPolicy = RetryPolicy.of(zooKeeper);
+        this.readData = readData;
+        this.readACLs = readACLs;
+        this.skipUnreadable = skipUnreadable;
+    }
+
+    /**
+     * @param nodePath - the root of the subtree to walk
+     * @param visitor  - the {@link Visitor} to hand the nodes to
+     * @return the number of nodes visited
+     * @throws KeeperException      - if a node could not be read, other than
+     *                              one the session may not read when those
+     *                              are skipped
+     * @throws IOException          - if the visitor failed
+     * @throws InterruptedException - if the crawl was cancelled
+     */
+    public long crawl(String nodePath, Visitor visitor) throws KeeperException, IOException, InterruptedException {
+        toVisit.push(nodePath);
+        while (!toVisit.isEmpty() || !inFlight.isEmpty()) {
+            while (!toVisit.isEmpty() && inFlight.size() < controller.limit) {
+                PendingNode node = new PendingNode(toVisit.pop(), controller.nextSequence());
+                inFlight.put(node.path, node);
+                readChildren(node);
+                if (readData) {
+                    readData(node);
+                }
+                if (readACLs) {
+                    readACL(node);
+                }
+            }
+            Reply reply = replies.take();
+            PendingNode node = inFlight.get(reply.path);
+            if (node == null) {
+                // the node was dropped on an earlier reply
+                continue;
+            }
+            Code code = Code.get(reply.rc);
+            controller.replied(node.sequence, reply.latencyNanos, code == Code.CONNECTIONLOSS);
+            if (code == Code.CONNECTIONLOSS && node.retry.later(reply.retry)) {
+                continue;
+            }
+            if (code == Code.NONODE) {
+                inFlight.remove(node.path);
+                continue;
+            }
+            if (code == Code.NOAUTH && skipUnreadable) {
+                // its children cannot be listed either
+                inFlight.remove(node.path);
+                unreadable++;
+                visitor.unreadable(node.path);
+                continue;
+            }
+            if (code != Code.OK) {
+                throw KeeperException.create(code, node.path);
+            }
+            reply.apply.accept(node);
+            if (node.isComplete()) {
+                inFlight.remove(node.path);
+                visited++;
+                visitor.visit(new NodeRecord(node.path, node.stat,
+                        node.acls != null ? node.acls : Collections.<ACL>emptyList(), node.data));
+                String prefix = node.path.equals("/") ? "/" : node.path + "/";
+                List<String> children = new ArrayList<>(node.children);
+                // pushed in reverse, so that they are visited in order
+                children.sort(Collections.reverseOrder());
+                for (String child : children) {
+                    toVisit.push(prefix + child);
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * @return the number of nodes visited so far
+     */
+    public long getVisited() {
+        return visited;
+    }
+
+    /**
+     * @return the number of nodes left out, with their subtrees, as the
+     *         session may not read them
+     */
+    public long getUnreadable() {
+        return unreadable;
+    }
+
+    /**
+     * @return the number of nodes found but not visited yet
+     */
+    public int getPending() {
+        return inFlight.size() + toVisit.size();
+    }
+
+    /**
+     * @return the number of nodes currently read at a time
+     */
+    public int getConcurrency() {
+        return controller.limit;
+    }
+
+    private void readChildren(PendingNode node) {
+        final long sent = System.nanoTime();
+        zooKeeper.getChildren(node.path, false, (rc, path, ctx, children, stat) ->
+                replies.add(new Reply(rc, path, System.nanoTime() - sent, () -> readChildren(node), n -> {
+                    n.children = children;
+                    if (n.stat == null) {
+                        n.stat = stat;
+                    }
+                })), null);
+    }
+
+    private void readData(PendingNode node) {
+        final long sent = System.nanoTime();
+        zooKeeper.getData(node.path, false, (rc, path, ctx, data, stat) ->
+                replies.add(new Reply(rc, path, System.nanoTime() - sent, () -> readData(node), n -> {
+                    // the Stat read with the data matches the data
+                    n.data = data;
+                    n.stat = stat;
+                    n.dataRead = true;
+                })), null);
+    }
+
+    private void readACL(PendingNode node) {
+        final long sent = System.nanoTime();
+        zooKeeper.getACL(node.path, new Stat(), (rc, path, ctx, acl, stat) ->
+                replies.add(new Reply(rc, path, System.nanoTime() - sent, () -> readACL(node),
+                        n -> n.acls = acl)), null);
+    }
+
+    /**
+     * The additive increase, multiplicative decrease controller of the number
+     * of nodes read at a time. Only used by the thread running the crawl.
+     */
+    private static class ConcurrencyController {
+        private int limit = INITIAL_CONCURRENCY;
+        private boolean slowStart = true;
+        private long sequence;
+        private long lastDecrease;
+        private int repliesSinceIncrease;
+        private long minLatencyNanos = Long.MAX_VALUE;
+        private double smoothedLatencyNanos;
+
+        long nextSequence() {
+            return ++sequence;
+        }
+
+        /**
+         * @param requestSequence - the sequence number of the node replied to
+         * @param latencyNanos    - the time the reply took
+         * @param connectionLoss  - whether the request failed with a
+         *                        connection loss
+         */
+        void replied(long requestSequence, long latencyNanos, boolean connectionLoss) {
+            if (!connectionLoss) {
+                minLatencyNanos = Math.min(minLatencyNanos, latencyNanos);
+                smoothedLatencyNanos = smoothedLatencyNanos == 0 ? latencyNanos
+                        : smoothedLatencyNanos + (latencyNanos - smoothedLatencyNanos) / 8;
+            }
+            boolean congested = connectionLoss || smoothedLatencyNanos
+                    > (double) minLatencyNanos * LATENCY_FACTOR + TimeUnit.MILLISECONDS.toNanos(LATENCY_SLACK_MS);
+            if (congested) {
+                // replies to requests sent before the last decrease still
+                // reflect the old limit, so only decrease once per round
+                if (requestSequence > lastDecrease) {
+                    slowStart = false;
+                    limit = Math.max(1, limit / 2);
+                    lastDecrease = sequence;
+                    repliesSinceIncrease = 0;
+                }
+            } else if (slowStart || ++repliesSinceIncrease >= limit) {
+                repliesSinceIncrease = 0;
+                limit = Math.min(MAX_CONCURRENCY, limit + 1);
+            }
+        }
+    }
+
+    /**
+     * A node being read, only touched by the thread running the crawl
+     */
+    private class PendingNode {
+        private final String path;
+        private final long sequence;
+        private final RetryPolicy.Retry retry = retryPolicy.start();
+        private Stat stat;
+        private byte[] data;
+        private boolean dataRead;
+        private List<ACL> acls;
+        private List<String> children;
+
+        PendingNode(String path, long sequence) {
+            this.path = path;
+            this.sequence = sequence;
+        }
+
+        boolean isComplete() {
+            return children != null && (!readData || dataRead) && (!readACLs || acls != null);
+        }
+    }
+
+    /**
+     * The reply to one of the reads of a node, handed from the zookeeper event
+     * thread to the thread running the crawl
+     */
+    private static class Reply {
+        private final int rc;
+        private final String path;
+        private final long latencyNanos;
+        private final Runnable retry;
+        private final Consumer<PendingNode> apply;
+
+        Reply(int rc, String path, long latencyNanos, Runnable retry, Consumer<PendingNode> apply) {
+            this.rc = rc;
+            this.path = path;
+            this.latencyNanos = latencyNanos;
+            this.retry = retry;
+            this.apply = apply;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.ZooKeeper;
+
+/**
+ * Deletes a node along with all of its descendants.
+ * <p>
+ * The subtree is first listed with a {@link SubtreeCrawler}. The nodes are then
+ * deleted children first, in {@link ZooKeeper#multi(Iterable)} transactions of
+ * up to {@link #MAX_BATCH_OPS} deletes whose requests stay well under the
+ * jute.maxbuffer limit. A transaction which fails, for example because
+ * another client deleted one of its nodes first, is retried one node at a
+ * time.
+ * <p>
+ * Reads and deletes together are kept under an optional rate limit, so that a
+ * large delete does not starve the other clients of the ensemble. The delete
+ * runs on the calling thread, and interrupting that thread cancels it after
+ * the transaction in flight.
+ */
+class SubtreeDeleter {
+    /**
+     * The most deletes in a single transaction
+     */
+    public static final int MAX_BATCH_OPS = 1000;
+
+    /**
+     * The jute.maxbuffer default of the zookeeper server and client
+     */
+    private static final int DEFAULT_MAX_BUFFER = 0xfffff;
+
+    /**
+     * The serialized size of a delete in a multi request, apart from its
+     * path: the op header, the path length and the version
+     */
+    private static final int DELETE_OP_OVERHEAD = 32;
+
+    private final ZooKeeper zooKeeper;
+    private final int rateLimit;
+    private final ProgressListener listener;
+    private final int maxBatchBytes;
+    private long startNanos;
+    private long ops;
+
+    /**
+     * @param zooKeeper - the session to delete with
+     * @param rateLimit - the most reads and deletes per second, or 0 for no
+     *                  limit
+     * @param listener  - the listener for the progress of the delete
+     */
+    SubtreeDeleter(ZooKeeper zooKeeper, int rateLimit, ProgressListener listener) {
+        this.zooKeeper = zooKeeper;
+        this.rateLimit = rateLimit;
+        this.listener = listener;
+        // the server rejects requests of more than jute.maxbuffer bytes, so
+        // only fill half of it to leave room for the rest of the request
+        this.maxBatchBytes = Integer.getInteger("jute.maxbuffer", DEFAULT_MAX_BUFFER) / 2;
+    }
+
+    /**
+     * @param nodePath - the root of the subtree to delete
+     * @return the number of nodes deleted
+     * @throws KeeperException      - if a node could not be listed or deleted
+     * @throws InterruptedException - if the delete was cancelled
+     */
+    int delete(String nodePath) throws KeeperException, InterruptedException {
+        startNanos = System.nanoTime();
+        ops = 0;
+        List<String> nodes = list(nodePath);
+        int deleted = 0;
+        int end = nodes.size();
+        while (end > 0) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            List<Op> batch = new ArrayList<>();
+            int batchBytes = 0;
+            int maxOps = rateLimit > 0 ? Math.min(MAX_BATCH_OPS, rateLimit) : MAX_BATCH_OPS;
+            while (end > 0 && batch.size() < maxOps) {
+                String path = nodes.get(end - 1);
+                int size = DELETE_OP_OVERHEAD + path.getBytes(StandardCharsets.UTF_8).length;
+                if (!batch.isEmpty() && batchBytes + size > maxBatchBytes) {
+                    break;
+                }
+                batch.add(Op.delete(path, -1));
+                batchBytes += size;
+                end--;
+            }
+            throttle(batch.size());
+            deleted += deleteBatch(batch);
+            listener.progress(nodes.size() - end, nodes.size());
+        }
+        return deleted;
+    }
+
+    /**
+     * @return the paths of the subtree, each listed before its children, or
+     *         an empty list if the root does not exist
+     */
+    private List<String> list(String nodePath) throws KeeperException, InterruptedException {
+        List<String> nodes = new ArrayList<>();
+        try {
+            new SubtreeCrawler(zooKeeper, false, false).crawl(nodePath, node -> {
+                nodes.add(node.getPath());
+                listener.progress(0, nodes.size());
+                throttle(1);
+            });
+        } catch (IOException e) {
+            // only thrown by visitors
+            throw new IllegalStateException(e);
+        }
+        return nodes;
+    }
+
+    /**
+     * @return the number of nodes of the batch which were deleted, not
+     *         counting those another client deleted first
+     */
+    private int deleteBatch(List<Op> batch) throws KeeperException, InterruptedException {
+        try {
+            zooKeeper.multi(batch);
+            return batch.size();
+        } catch (KeeperException e) {
+            // the whole transaction was rolled back, or, after a connection
+            // loss, may or may not have been applied
+            int deleted = 0;
+            for (Op op : batch) {
+                try {
+                    zooKeeper.delete(op.getPath(), -1);
+                    deleted++;
+                } catch (KeeperException.NoNodeException ignored) {
+                    // deleted by another client, or by the transaction itself
+                }
+            }
+            return deleted;
+        }
+    }
+
+    /**
+     * Waits until another <code>count</code> operations are within the rate
+     * limit
+     */
+    private void throttle(int count) throws InterruptedException {
+        ops += count;
+        if (rateLimit > 0) {
+            long due = startNanos + TimeUnit.SECONDS.toNanos(ops) / rateLimit;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+}
@@ -0,0 +1,514 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.ZooDefs.Ids;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.inspector.logger.LoggerFactory;
+import org.apache.zookeeper.retry.RetryPolicy;
+import org.apache.zookeeper.retry.ZooKeeperRetry;
+
+/**
+ * Creates the nodes of an {@link ExportFile}.
+ * <p>
+ * Records are read one at a time and each is sent as an asynchronous create
+ * straight away, with up to a window of requests outstanding. As the file
+ * lists every node after its parent, and zookeeper applies the requests of a
+ * session in the order they were sent, a parent is always created before its
+ * children without waiting for it. Nodes which already exist are handled
+ * according to the {@link ImportPolicy}.
+ * <p>
+ * The creates lost with the connection, and those read meanwhile, are held
+ * and sent again in file order once the session is connected again, so that
+ * the order still holds. A create which reached the server before its parent
+ * anyway, having been queued by the client while it reconnected, is sent
+ * again once the parent is created.
+ * <p>
+ * Nodes are created with the ACLs from the file, so a node whose ACL does not
+ * grant this session the create permission cannot have its children imported;
+ * those children are counted as failed. Ephemeral nodes, which belong to the
+ * session which created them, and zookeeper's own nodes are skipped.
+ * <p>
+ * The import runs on the calling thread, and interrupting that thread stops
+ * it after the requests in flight.
+ */
+class SubtreeImporter {
+    private static final String ZOOKEEPER_NODE = "/zookeeper";
+
+    private final ZooKeeper zooKeeper;
+    private final RetryPolicy retryPolicy;
+    private final ImportPolicy policy;
+    private final int windowSize;
+    private final Semaphore window;
+    private final ProgressListener listener;
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong overwritten = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile KeeperException failure;
+
+    // the creates not answered yet, by path
+    private final Map<String, Create> pending = new HashMap<>();
+    // the creates held while the session reconnects, in file order
+    private final TreeMap<Long, Create> held = new TreeMap<>();
+    // the creates which reached the server before their parent, by parent
+    private final Map<String, List<Create>> waiting = new HashMap<>();
+    private boolean paused;
+
+    /**
+     * @param zooKeeper  - the session to create the nodes with
+     * @param policy     - what to do with nodes which already exist
+     * @param windowSize - the most requests outstanding at a time
+     * @param listener   - the listener for the progress of the import
+     */
+    SubtreeImporter(ZooKeeper zooKeeper, ImportPolicy policy, int windowSize, ProgressListener listener) {
+        this.zooKeeper = zooKeeper;
+        this.retryPolicy = RetryPolicy.of(zooKeeper);
+        this.policy = policy;
+        this.windowSize = windowSize;
+        this.window = new Semaphore(windowSize);
+        this.listener = listener;
+    }
+
+    /**
+     * @param reader     - the file to import
+     * @param parentPath - the node to import the exported subtree under, or
+     *                   null to import it where it was exported from
+     * @return the {@link ImportResult}
+     * @throws IOException          - if the file cannot be read
+     * @throws KeeperException      - if the session failed, or the parent
+     *                              node could not be created
+     * @throws InterruptedException - if the import was cancelled
+     */
+    ImportResult importNodes(ExportFile.Reader reader, String parentPath)
+            throws IOException, KeeperException, InterruptedException {
+        long start = System.nanoTime();
+        String sourceRoot = null;
+        String targetRoot = null;
+        long read = 0;
+        try {
+            NodeRecord record;
+            while (failure == null && (record = reader.read()) != null) {
+                if (sourceRoot == null) {
+                    sourceRoot = record.getPath();
+                    targetRoot = parentPath == null ? sourceRoot : childPath(parentPath, nodeName(sourceRoot));
+                    createParents(targetRoot);
+                    // so that the last zxid seen covers the nodes already
+                    // there, which are told from the nodes created by their
+                    // czxid
+                    zooKeeper.exists(targetRoot, false);
+                }
+                String path = rebase(record.getPath(), sourceRoot, targetRoot);
+                if (path.equals("/") || path.equals(ZOOKEEPER_NODE) || path.startsWith(ZOOKEEPER_NODE + "/")
+                        || record.getStat().getEphemeralOwner() != 0) {
+                    skipped.incrementAndGet();
+                } else {
+                    window.acquire();
+                    send(new Create(read, path, record));
+                }
+                listener.progress(++read, read);
+            }
+        } finally {
+            // wait for the requests in flight, so that the counts are final
+            window.acquireUninterruptibly(windowSize);
+            window.release(windowSize);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return new ImportResult(created.get(), overwritten.get(), skipped.get(), conflicts.get(), failed.get(),
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Sends a create, or holds it while the session reconnects
+     */
+    private synchronized void send(Create create) {
+        if (failure != null) {
+            // the import is given up, and this node was never sent
+            window.release();
+            return;
+        }
+        pending.put(create.path, create);
+        if (paused) {
+            held.put(create.index, create);
+            return;
+        }
+        if (create.zxid < 0) {
+            create.zxid = lastZxid();
+        }
+        zooKeeper.create(create.path, create.record.getData(), create.record.getACLs(), CreateMode.PERSISTENT,
+                (rc, p, ctx, name) -> created(create, Code.get(rc)), null);
+    }
+
+    private void created(Create create, Code code) {
+        if (code == Code.CONNECTIONLOSS) {
+            hold(create);
+        } else if (code == Code.OK) {
+            created.incrementAndGet();
+            window.release();
+            finish(create, true);
+        } else if (code == Code.NODEEXISTS && create.lost) {
+            // the create may have been applied before the connection was
+            // lost
+            checkCreated(create, retryPolicy.start());
+        } else if (code == Code.NODEEXISTS) {
+            finish(create, true);
+            existing(create.path, create.record);
+        } else if (code != Code.NONODE || !waitForParent(create)) {
+            fail(code, create.path);
+            finish(create, false);
+        }
+    }
+
+    /**
+     * Holds a create lost with the connection. The first one lost starts
+     * waiting for the session to be connected again.
+     */
+    private synchronized void hold(Create create) {
+        if (failure != null) {
+            fail(Code.CONNECTIONLOSS, create.path);
+            finish(create, false);
+            return;
+        }
+        create.lost = true;
+        held.put(create.index, create);
+        if (!paused) {
+            paused = true;
+            resume(retryPolicy.start());
+        }
+    }
+
+    /**
+     * Sends the held creates again once the session is connected. The read
+     * sent first is only answered once the session is connected, and its
+     * reply is called back after every request lost with the connection, so
+     * all of those are held by then.
+     */
+    private void resume(RetryPolicy.Retry retry) {
+        boolean later = retry.later(() -> zooKeeper.exists("/", false, (rc, p, ctx, stat) -> {
+            if (Code.get(rc) == Code.CONNECTIONLOSS) {
+                resume(retry);
+            } else {
+                replay();
+            }
+        }, null));
+        if (!later) {
+            giveUp();
+        }
+    }
+
+    private synchronized void replay() {
+        paused = false;
+        List<Create> creates = new ArrayList<>(held.values());
+        held.clear();
+        for (Create create : creates) {
+            send(create);
+        }
+    }
+
+    private synchronized void giveUp() {
+        List<Create> creates = new ArrayList<>(held.values());
+        held.clear();
+        paused = false;
+        for (Create create : creates) {
+            fail(Code.CONNECTIONLOSS, create.path);
+            finish(create, false);
+        }
+    }
+
+    /**
+     * Parks a create which found no parent, if the parent is still to be
+     * created
+     *
+     * @return false if the parent is not being created
+     */
+    private synchronized boolean waitForParent(Create create) {
+        String parentPath = create.path.substring(0, Math.max(create.path.lastIndexOf('/'), 1));
+        if (!pending.containsKey(parentPath)) {
+            return false;
+        }
+        waiting.computeIfAbsent(parentPath, p -> new ArrayList<>()).add(create);
+        return true;
+    }
+
+    /**
+     * Ends a create, sending again the children which reached the server
+     * before it, or failing them if the node could not be created
+     */
+    private void finish(Create create, boolean exists) {
+        List<Create> children;
+        synchronized (this) {
+            pending.remove(create.path, create);
+            children = waiting.remove(create.path);
+        }
+        if (children == null) {
+            return;
+        }
+        children.sort((a, b) -> Long.compare(a.index, b.index));
+        for (Create child : children) {
+            if (exists) {
+                send(child);
+            } else {
+                fail(Code.NONODE, child.path);
+                finish(child, false);
+            }
+        }
+    }
+
+    /**
+     * Tells from the {@link Stat} of the node whether a create, lost with the
+     * connection, was applied: a node created after the last change the
+     * session had seen when the create was first sent is the one just
+     * created. Anything else is a node which existed already.
+     */
+    private void checkCreated(Create create, RetryPolicy.Retry retry) {
+        zooKeeper.exists(create.path, false, (rc, p, ctx, stat) -> {
+            Code code = Code.get(rc);
+            if (retry(code, retry, () -> checkCreated(create, retry))) {
+                return;
+            }
+            if (code == Code.NONODE) {
+                // deleted since, so it is sent again
+                send(create);
+            } else if (code != Code.OK) {
+                fail(code, create.path);
+                finish(create, false);
+            } else if (stat.getCzxid() > create.zxid) {
+                created.incrementAndGet();
+                window.release();
+                finish(create, true);
+            } else {
+                finish(create, true);
+                existing(create.path, create.record);
+            }
+        }, null);
+    }
+
+    private void existing(String path, NodeRecord record) {
+        switch (policy) {
+            case OVERWRITE:
+                setData(path, record, -1, retryPolicy.start());
+                break;
+            case VERSION_CHECK:
+                setData(path, record, record.getStat().getVersion(), retryPolicy.start());
+                break;
+            default:
+                skipped.incrementAndGet();
+                window.release();
+                break;
+        }
+    }
+
+    private void setData(String path, NodeRecord record, int version, RetryPolicy.Retry retry) {
+        zooKeeper.setData(path, record.getData(), version, (rc, p, ctx, stat) -> {
+            Code code = Code.get(rc);
+            // a write against a version may have been applied before the
+            // connection was lost, so sending it again could fail
+            if (retry(code, retry, version == -1 ? () -> setData(path, record, version, retry)
+                    : () -> checkData(path, record, version, retry))) {
+                return;
+            }
+            if (code == Code.OK) {
+                setACL(path, record, version == -1 ? -1 : record.getStat().getAversion(), retryPolicy.start());
+            } else if (code == Code.BADVERSION) {
+                conflicts.incrementAndGet();
+                window.release();
+            } else {
+                fail(code, path);
+            }
+        }, null);
+    }
+
+    /**
+     * Tells from the {@link Stat} of the node whether a setData against a
+     * version, lost with the connection, was applied, without reading the
+     * data back
+     */
+    private void checkData(String path, NodeRecord record, int version, RetryPolicy.Retry retry) {
+        zooKeeper.exists(path, false, (rc, p, ctx, stat) -> {
+            Code code = Code.get(rc);
+            if (retry(code, retry, () -> checkData(path, record, version, retry))) {
+                return;
+            }
+            if (code != Code.OK) {
+                fail(code, path);
+            } else if (stat.getVersion() == version + 1 && stat.getDataLength() == dataLength(record)) {
+                setACL(path, record, record.getStat().getAversion(), retryPolicy.start());
+            } else if (stat.getVersion() == version) {
+                setData(path, record, version, retry);
+            } else {
+                conflicts.incrementAndGet();
+                window.release();
+            }
+        }, null);
+    }
+
+    private void setACL(String path, NodeRecord record, int aversion, RetryPolicy.Retry retry) {
+        zooKeeper.setACL(path, record.getACLs(), aversion, (rc, p, ctx, stat) -> {
+            Code code = Code.get(rc);
+            if (retry(code, retry, aversion == -1 ? () -> setACL(path, record, aversion, retry)
+                    : () -> checkACL(path, record, aversion, retry))) {
+                return;
+            }
+            if (code == Code.OK) {
+                overwritten.incrementAndGet();
+                window.release();
+            } else if (code == Code.BADVERSION) {
+                conflicts.incrementAndGet();
+                window.release();
+            } else {
+                fail(code, path);
+            }
+        }, null);
+    }
+
+    /**
+     * Tells from the {@link Stat} of the node whether a setACL against a
+     * version, lost with the connection, was applied
+     */
+    private void checkACL(String path, NodeRecord record, int aversion, RetryPolicy.Retry retry) {
+        zooKeeper.exists(path, false, (rc, p, ctx, stat) -> {
+            Code code = Code.get(rc);
+            if (retry(code, retry, () -> checkACL(path, record, aversion, retry))) {
+                return;
+            }
+            if (code != Code.OK) {
+                fail(code, path);
+            } else if (stat.getAversion() == aversion + 1) {
+                overwritten.incrementAndGet();
+                window.release();
+            } else if (stat.getAversion() == aversion) {
+                setACL(path, record, aversion, retry);
+            } else {
+                conflicts.incrementAndGet();
+                window.release();
+            }
+        }, null);
+    }
+
+    /**
+     * @return the last zxid the session has seen, or the largest zxid if it
+     *         cannot be told, so that no node is taken for one just created
+     */
+    private long lastZxid() {
+        return zooKeeper instanceof ZooKeeperRetry ? ((ZooKeeperRetry) zooKeeper).getLastZxid() : Long.MAX_VALUE;
+    }
+
+    private static int dataLength(NodeRecord record) {
+        return record.getData() == null ? 0 : record.getData().length;
+    }
+
+    /**
+     * Counts a node which could not be imported. Errors affecting the whole
+     * session stop the import, others only the node.
+     */
+    private void fail(Code code, String path) {
+        failed.incrementAndGet();
+        KeeperException e = KeeperException.create(code, path);
+        switch (code) {
+            case CONNECTIONLOSS:
+            case SESSIONEXPIRED:
+            case SESSIONMOVED:
+            case AUTHFAILED:
+                if (failure == null) {
+                    failure = e;
+                }
+                break;
+            default:
+                LoggerFactory.getLogger().error("Error occurred importing node: " + path, e);
+                break;
+        }
+        window.release();
+    }
+
+    private static boolean retry(Code code, RetryPolicy.Retry retry, Runnable request) {
+        return code == Code.CONNECTIONLOSS && retry.later(request);
+    }
+
+    /**
+     * Creates the missing ancestors of the node the subtree is imported to,
+     * with an open ACL, as {@link ZooInspectorManagerImpl#createNode} does
+     */
+    private void createParents(String path) throws KeeperException, InterruptedException {
+        int index = path.indexOf('/', 1);
+        while (index > 0) {
+            try {
+                zooKeeper.create(path.substring(0, index), null, Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            } catch (KeeperException.NodeExistsException ignored) {
+                // created already
+            }
+            index = path.indexOf('/', index + 1);
+        }
+    }
+
+    /**
+     * A create of a node of the file
+     */
+    private static class Create {
+        // the position of the node in the file
+        final long index;
+        final String path;
+        final NodeRecord record;
+        // the last zxid the session had seen when the create was first sent
+        long zxid = -1;
+        // whether the create was lost with the connection, and may have been
+        // applied
+        boolean lost;
+
+        Create(long index, String path, NodeRecord record) {
+            this.index = index;
+            this.path = path;
+            this.record = record;
+        }
+    }
+
+    private static String rebase(String path, String sourceRoot, String targetRoot) {
+        String relative = path.equals(sourceRoot) ? ""
+                : sourceRoot.equals("/") ? path : path.substring(sourceRoot.length());
+        if (targetRoot.equals("/")) {
+            return relative.isEmpty() ? "/" : relative;
+        }
+        return targetRoot + relative;
+    }
+
+    private static String nodeName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static String childPath(String parentPath, String name) {
+        if (name.isEmpty()) {
+            return parentPath;
+        }
+        return (parentPath.equals("/") ? "" : parentPath) + "/" + name;
+    }
+}
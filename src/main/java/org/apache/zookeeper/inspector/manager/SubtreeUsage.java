@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+/**
+ * The space taken by the subtree of a single node: the number of nodes in it,
+ * the bytes of data they hold, how deep it goes and how many of its nodes are
+ * ephemeral. Nodes the session may not read are counted, and their subtrees
+ * left out. Instances are immutable snapshots, taken while the subtree is
+ * being crawled or once the crawl has finished.
+ */
+public class SubtreeUsage {
+    private final String nodePath;
+    private final long nodeCount;
+    private final long expectedNodeCount;
+    private final long dataBytes;
+    private final int maxDepth;
+    private final long ephemeralCount;
+    private final long unreadableCount;
+
+    /**
+     * @param nodePath          - the path to the root of the subtree
+     * @param nodeCount         - the number of nodes crawled in the subtree,
+     *                          its root included
+     * @param expectedNodeCount - the number of nodes in the subtree as counted
+     *                          by the server before the crawl, or -1 if not
+     *                          known
+     * @param dataBytes         - the total data length of the nodes crawled
+     * @param maxDepth          - the number of levels of the subtree, 1 for a
+     *                          node without children
+     * @param ephemeralCount    - the number of ephemeral nodes crawled
+     * @param unreadableCount   - the number of nodes left out, with their
+     *                          subtrees, as the session may not read them
+     */
+    public SubtreeUsage(String nodePath, long nodeCount, long expectedNodeCount, long dataBytes, int maxDepth,
+            long ephemeralCount, long unreadableCount) {
+        this.nodePath = nodePath;
+        this.nodeCount = nodeCount;
+        this.expectedNodeCount = expectedNodeCount;
+        this.dataBytes = dataBytes;
+        this.maxDepth = maxDepth;
+        this.ephemeralCount = ephemeralCount;
+        this.unreadableCount = unreadableCount;
+    }
+
+    /**
+     * @return the path to the root of the subtree
+     */
+    public String getNodePath() {
+        return nodePath;
+    }
+
+    /**
+     * @return the name of the root of the subtree
+     */
+    public String getNodeName() {
+        return nodePath.substring(nodePath.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * @return the number of nodes crawled in the subtree, its root included
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the number of nodes in the subtree, its root included, as
+     *         counted by the server with a single getAllChildrenNumber call
+     *         before the crawl, or -1 if the server could not count them
+     */
+    public long getExpectedNodeCount() {
+        return expectedNodeCount;
+    }
+
+    /**
+     * @return the total data length of the nodes crawled, in bytes
+     */
+    public long getDataBytes() {
+        return dataBytes;
+    }
+
+    /**
+     * @return the number of levels of the subtree crawled so far, 1 for a node
+     *         without children
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the number of ephemeral nodes crawled in the subtree
+     */
+    public long getEphemeralCount() {
+        return ephemeralCount;
+    }
+
+    /**
+     * @return the number of nodes left out, with their subtrees, as the
+     *         session may not read them
+     */
+    public long getUnreadableCount() {
+        return unreadableCount;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: %d nodes, %d bytes, depth %d, %d ephemeral, %d unreadable", nodePath, nodeCount,
+                dataBytes, maxDepth, ephemeralCount, unreadableCount);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * Measures the subtree of every child of a node, like du does for the
+ * subdirectories of a directory.
+ * <p>
+ * The node counts come first: the server counts the nodes of each subtree
+ * with a single getAllChildrenNumber call, all sent at once, so the number of
+ * nodes is known before the subtrees are crawled. Data sizes, depths and
+ * ephemeral nodes are only in the {@link Stat} of each node, so the subtrees
+ * are then crawled with a {@link SubtreeCrawler} which reads nothing but the
+ * {@link Stat}s, skipping and counting the nodes the session may not read.
+ * Partial results are handed to a listener every
+ * {@link #PUBLISH_INTERVAL_MS} while the crawl runs, and the memory held is
+ * one total per child.
+ */
+class SubtreeUsageScanner {
+    /**
+     * The interval, in milliseconds, at which partial results are published
+     */
+    static final int PUBLISH_INTERVAL_MS = 250;
+
+    /**
+     * Orders the largest subtrees by data size first
+     */
+    static final Comparator<SubtreeUsage> LARGEST_FIRST = Comparator.comparingLong(SubtreeUsage::getDataBytes)
+            .reversed().thenComparing(SubtreeUsage::getNodePath);
+
+    private final ZooKeeper zooKeeper;
+    private final Consumer<List<SubtreeUsage>> listener;
+    private final Map<String, Totals> totals = new LinkedHashMap<>();
+
+    /**
+     * @param zooKeeper - the session to read with
+     * @param listener  - called on the scanning thread with partial results,
+     *                  largest first
+     */
+    SubtreeUsageScanner(ZooKeeper zooKeeper, Consumer<List<SubtreeUsage>> listener) {
+        this.zooKeeper = zooKeeper;
+        this.listener = listener;
+    }
+
+    /**
+     * @param nodePath - the node whose children to measure
+     * @return the usage of the subtree of every child, largest first
+     * @throws KeeperException      - if a node could not be read
+     * @throws IOException          - if the crawl failed
+     * @throws InterruptedException - if the scan was cancelled
+     */
+    List<SubtreeUsage> scan(String nodePath) throws KeeperException, IOException, InterruptedException {
+        final String prefix = nodePath.equals("/") ? "/" : nodePath + "/";
+        List<String> children = zooKeeper.getChildren(nodePath, false);
+        final CountDownLatch counted = new CountDownLatch(children.size());
+        for (String child : children) {
+            final Totals childTotals = new Totals(prefix + child);
+            totals.put(child, childTotals);
+            zooKeeper.getAllChildrenNumber(childTotals.path, (rc, path, ctx, number) -> {
+                // servers older than 3.6 cannot count, the crawl still will
+                if (Code.get(rc) == Code.OK) {
+                    childTotals.expected = number + 1L;
+                }
+                counted.countDown();
+            }, null);
+        }
+        // the first result shows the counts, unless the server is slow
+        counted.await(PUBLISH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        listener.accept(snapshot());
+        long[] lastPublished = { System.nanoTime() };
+        new SubtreeCrawler(zooKeeper, false, false, true).crawl(nodePath, new SubtreeCrawler.Visitor() {
+            @Override
+            public void visit(NodeRecord node) {
+                String path = node.getPath();
+                if (path.length() <= prefix.length()) {
+                    // the node itself
+                    return;
+                }
+                int end = path.indexOf('/', prefix.length());
+                int depth = 1;
+                for (int i = end; i >= 0; i = path.indexOf('/', i + 1)) {
+                    depth++;
+                }
+                totals(path).add(node.getStat(), depth);
+                publish();
+            }
+
+            @Override
+            public void unreadable(String path) {
+                if (path.length() > prefix.length()) {
+                    totals(path).unreadable++;
+                    publish();
+                }
+            }
+
+            private Totals totals(String path) {
+                int end = path.indexOf('/', prefix.length());
+                String child = path.substring(prefix.length(), end < 0 ? path.length() : end);
+                // children created since the listing have a total of their own
+                return SubtreeUsageScanner.this.totals.computeIfAbsent(child, c -> new Totals(prefix + c));
+            }
+
+            private void publish() {
+                long now = System.nanoTime();
+                if (now - lastPublished[0] >= TimeUnit.MILLISECONDS.toNanos(PUBLISH_INTERVAL_MS)) {
+                    lastPublished[0] = now;
+                    listener.accept(snapshot());
+                }
+            }
+        });
+        List<SubtreeUsage> result = snapshot();
+        listener.accept(result);
+        return result;
+    }
+
+    private List<SubtreeUsage> snapshot() {
+        List<SubtreeUsage> usages = new ArrayList<>(totals.size());
+        for (Totals childTotals : totals.values()) {
+            usages.add(childTotals.toUsage());
+        }
+        usages.sort(LARGEST_FIRST);
+        return usages;
+    }
+
+    /**
+     * The running totals of the subtree of one child. Only the expected count
+     * is written by the zookeeper event thread, the rest belongs to the
+     * scanning thread.
+     */
+    private static class Totals {
+        private final String path;
+        private volatile long expected = -1;
+        private long nodes;
+        private long bytes;
+        private int maxDepth;
+        private long ephemerals;
+        private long unreadable;
+
+        Totals(String path) {
+            this.path = path;
+        }
+
+        void add(Stat stat, int depth) {
+            nodes++;
+            bytes += stat.getDataLength();
+            maxDepth = Math.max(maxDepth, depth);
+            if (stat.getEphemeralOwner() != 0) {
+                ephemerals++;
+            }
+        }
+
+        SubtreeUsage toUsage() {
+            return new SubtreeUsage(path, nodes, expected, bytes, maxDepth, ephemerals, unreadable);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The nodes with the most data and the nodes with the most children found in
+ * a subtree, as found by
+ * {@link ZooInspectorReadOnlyManager#findTopNodes(String, int, ProgressListener)}.
+ * The nodes carry their {@link org.apache.zookeeper.data.Stat} but neither
+ * data nor ACLs.
+ */
+public class TopNodes {
+    private final String nodePath;
+    private final List<NodeRecord> largest;
+    private final List<NodeRecord> widest;
+    private final long scanned;
+    private final long unreadable;
+
+    TopNodes(String nodePath, List<NodeRecord> largest, List<NodeRecord> widest, long scanned, long unreadable) {
+        this.nodePath = nodePath;
+        this.largest = Collections.unmodifiableList(largest);
+        this.widest = Collections.unmodifiableList(widest);
+        this.scanned = scanned;
+        this.unreadable = unreadable;
+    }
+
+    /**
+     * @return the path to the root of the subtree scanned
+     */
+    public String getNodePath() {
+        return nodePath;
+    }
+
+    /**
+     * @return the nodes with the largest data length, largest first
+     */
+    public List<NodeRecord> getLargestNodes() {
+        return largest;
+    }
+
+    /**
+     * @return the nodes with the most children, most children first
+     */
+    public List<NodeRecord> getWidestNodes() {
+        return widest;
+    }
+
+    /**
+     * @return the number of nodes scanned
+     */
+    public long getScanned() {
+        return scanned;
+    }
+
+    /**
+     * @return the number of nodes left out, with their subtrees, as the
+     *         session may not read them
+     */
+    public long getUnreadable() {
+        return unreadable;
+    }
+}
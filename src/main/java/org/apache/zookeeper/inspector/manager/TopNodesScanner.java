@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * Finds the nodes with the most data and the nodes with the most children in
+ * a subtree, from the {@link Stat}s alone: the subtree is crawled with a
+ * {@link SubtreeCrawler} which reads no data, and skips the nodes the session
+ * may not read. Each list is kept in a min-heap bounded to the number of
+ * nodes asked for, whose smallest node is replaced whenever a larger one
+ * comes along, so the results take memory in proportion to that number
+ * whatever the size of the subtree.
+ */
+class TopNodesScanner {
+    private static final Comparator<NodeRecord> BY_DATA_LENGTH =
+            Comparator.<NodeRecord>comparingInt(node -> node.getStat().getDataLength())
+                    .thenComparing(NodeRecord::getPath, Comparator.reverseOrder());
+    private static final Comparator<NodeRecord> BY_NUM_CHILDREN =
+            Comparator.<NodeRecord>comparingInt(node -> node.getStat().getNumChildren())
+                    .thenComparing(NodeRecord::getPath, Comparator.reverseOrder());
+
+    private final ZooKeeper zooKeeper;
+    private final int count;
+    private final ProgressListener listener;
+
+    /**
+     * @param zooKeeper - the session to read with
+     * @param count     - the number of nodes to find for each list
+     * @param listener  - told of the nodes scanned and found so far
+     */
+    TopNodesScanner(ZooKeeper zooKeeper, int count, ProgressListener listener) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+        this.zooKeeper = zooKeeper;
+        this.count = count;
+        this.listener = listener;
+    }
+
+    /**
+     * @param nodePath - the root of the subtree to scan
+     * @return the nodes found
+     * @throws KeeperException      - if a node could not be read
+     * @throws IOException          - if the crawl failed
+     * @throws InterruptedException - if the scan was cancelled
+     */
+    TopNodes scan(String nodePath) throws KeeperException, IOException, InterruptedException {
+        final PriorityQueue<NodeRecord> largest = new PriorityQueue<>(count + 1, BY_DATA_LENGTH);
+        final PriorityQueue<NodeRecord> widest = new PriorityQueue<>(count + 1, BY_NUM_CHILDREN);
+        final SubtreeCrawler crawler = new SubtreeCrawler(zooKeeper, false, false, true);
+        long scanned = crawler.crawl(nodePath, node -> {
+            offer(largest, node, BY_DATA_LENGTH);
+            offer(widest, node, BY_NUM_CHILDREN);
+            listener.progress(crawler.getVisited(), crawler.getVisited() + crawler.getPending());
+        });
+        return new TopNodes(nodePath, drain(largest), drain(widest), scanned, crawler.getUnreadable());
+    }
+
+    private void offer(PriorityQueue<NodeRecord> heap, NodeRecord node, Comparator<NodeRecord> order) {
+        if (heap.size() < count) {
+            heap.add(node);
+        } else if (order.compare(node, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(node);
+        }
+    }
+
+    /**
+     * @return the nodes of the heap, largest first
+     */
+    private static List<NodeRecord> drain(PriorityQueue<NodeRecord> heap) {
+        List<NodeRecord> nodes = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            nodes.add(heap.poll());
+        }
+        Collections.reverse(nodes);
+        return nodes;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.zookeeper.AddWatchMode;
+import org.apache.zookeeper.AsyncCallback.VoidCallback;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.Watcher.WatcherType;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.inspector.logger.LoggerFactory;
+
+/**
+ * Adds and removes the watches this client holds on the server, and keeps
+ * count of them by type. A watch which would take the count over the budget
+ * is refused, so that a long session cannot pile up watches on the ensemble.
+ * <p>
+ * A watch is counted from the moment it is requested until it is removed,
+ * or the request fails. Every watch set by the inspector goes through the
+ * registry, so all the watches registered on a path are the inspector's own
+ * and can be dropped together.
+ */
+public class WatchRegistry {
+    /**
+     * The budget used when none is configured
+     */
+    public static final int DEFAULT_BUDGET = 1000;
+
+    private final ZooKeeper zooKeeper;
+    private final int budget;
+    private final Map<String, Map<Watcher, AddWatchMode>> watches = new HashMap<>();
+    private final Map<AddWatchMode, Integer> counts = new EnumMap<>(AddWatchMode.class);
+    private int count;
+
+    /**
+     * @param zooKeeper - the session to add the watches to
+     * @param budget    - the most watches which may be held at once
+     */
+    public WatchRegistry(ZooKeeper zooKeeper, int budget) {
+        this.zooKeeper = zooKeeper;
+        this.budget = budget;
+    }
+
+    /**
+     * @param nodePath - the path to add the watch to
+     * @param watcher  - the watcher to notify
+     * @param mode     - the kind of watch to add
+     * @throws IllegalStateException - if the budget is used up
+     * @throws KeeperException       - if the server refused the watch
+     * @throws InterruptedException  - if interrupted while waiting for the
+     *                               server
+     */
+    public void addWatch(String nodePath, Watcher watcher, AddWatchMode mode)
+            throws KeeperException, InterruptedException {
+        reserve(nodePath, watcher, mode);
+        boolean added = false;
+        try {
+            zooKeeper.addWatch(nodePath, watcher, mode);
+            added = true;
+        } finally {
+            if (!added) {
+                abandon(nodePath, watcher);
+            }
+        }
+    }
+
+    /**
+     * Adds a watch without waiting for the server
+     * 
+     * @param nodePath - the path to add the watch to
+     * @param watcher  - the watcher to notify
+     * @param mode     - the kind of watch to add
+     * @param callback - called with the result of the request
+     * @throws IllegalStateException - if the budget is used up
+     */
+    public void addWatch(String nodePath, Watcher watcher, AddWatchMode mode, VoidCallback callback) {
+        reserve(nodePath, watcher, mode);
+        zooKeeper.addWatch(nodePath, watcher, mode, (rc, path, ctx) -> {
+            if (rc != Code.OK.intValue()) {
+                abandon(nodePath, watcher);
+            }
+            callback.processResult(rc, path, ctx);
+        }, null);
+    }
+
+    /**
+     * Removes a watch. The server holds a single watch on a path for all the
+     * watchers added to it, so it is asked to drop that watch only once the
+     * last watcher on the path is removed; until then the watcher is only
+     * removed from the client. The watch is removed locally even if the
+     * server cannot be reached.
+     * 
+     * @param nodePath - the path the watch was added to
+     * @param watcher  - the watcher which was added
+     * @throws KeeperException      - if the server could not remove the watch
+     * @throws InterruptedException - if interrupted while waiting for the
+     *                              server
+     */
+    public void removeWatch(String nodePath, Watcher watcher) throws KeeperException, InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger result = new AtomicInteger();
+        VoidCallback callback = (rc, path, ctx) -> {
+            result.set(rc);
+            done.countDown();
+        };
+        // sent while holding the lock so that a watch added again on the
+        // path is requested after the removal
+        synchronized (this) {
+            if (release(nodePath, watcher)) {
+                zooKeeper.removeAllWatches(nodePath, WatcherType.Any, true, callback, null);
+            } else {
+                zooKeeper.removeWatches(nodePath, watcher, WatcherType.Any, true, callback, null);
+            }
+        }
+        done.await();
+        Code code = Code.get(result.get());
+        // no watcher means already gone, e.g. with the session
+        if (code != Code.OK && code != Code.NOWATCHER) {
+            throw KeeperException.create(code, nodePath);
+        }
+    }
+
+    /**
+     * Removes every watch still registered from the server, with a single
+     * request for each path
+     */
+    public void removeAllWatches() {
+        List<String> nodePaths;
+        synchronized (this) {
+            nodePaths = new ArrayList<>(watches.keySet());
+        }
+        for (String nodePath : nodePaths) {
+            try {
+                zooKeeper.removeAllWatches(nodePath, WatcherType.Any, true);
+            } catch (KeeperException.NoWatcherException e) {
+                // already gone, e.g. with the session
+            } catch (Exception e) {
+                LoggerFactory.getLogger().warn("Error occurred removing the watches on " + nodePath, e);
+            }
+        }
+        clear();
+    }
+
+    /**
+     * Forgets every watch without asking the server, for when the session
+     * and its watches are gone
+     */
+    public synchronized void clear() {
+        watches.clear();
+        counts.clear();
+        count = 0;
+    }
+
+    /**
+     * @return the number of watches held
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the number of watches held of each type, leaving out the types
+     *         of which none are held
+     */
+    public synchronized Map<AddWatchMode, Integer> getCounts() {
+        return new EnumMap<>(counts);
+    }
+
+    /**
+     * @return the most watches which may be held at once
+     */
+    public int getBudget() {
+        return budget;
+    }
+
+    private synchronized void reserve(String nodePath, Watcher watcher, AddWatchMode mode) {
+        Map<Watcher, AddWatchMode> pathWatches = watches.computeIfAbsent(nodePath, p -> new HashMap<>());
+        if (pathWatches.containsKey(watcher)) {
+            return;
+        }
+        if (count >= budget) {
+            if (pathWatches.isEmpty()) {
+                watches.remove(nodePath);
+            }
+            throw new IllegalStateException("The budget of " + budget + " watches is used up, not watching "
+                    + nodePath);
+        }
+        pathWatches.put(watcher, mode);
+        counts.merge(mode, 1, Integer::sum);
+        count++;
+    }
+
+    /**
+     * Forgets a watcher whose watch the server refused. Should it have been
+     * the last on the path, the watch the server still holds for the
+     * watchers removed meanwhile is dropped as well.
+     */
+    private synchronized void abandon(String nodePath, Watcher watcher) {
+        if (release(nodePath, watcher)) {
+            zooKeeper.removeAllWatches(nodePath, WatcherType.Any, true, (rc, path, ctx) -> {
+                // nothing more to do if it fails, the session is likely gone
+            }, null);
+        }
+    }
+
+    /**
+     * @return whether no watcher is left on the path
+     */
+    private synchronized boolean release(String nodePath, Watcher watcher) {
+        Map<Watcher, AddWatchMode> pathWatches = watches.get(nodePath);
+        AddWatchMode mode = pathWatches == null ? null : pathWatches.remove(watcher);
+        if (mode == null) {
+            return pathWatches == null;
+        }
+        if (pathWatches.isEmpty()) {
+            watches.remove(nodePath);
+        }
+        counts.computeIfPresent(mode, (m, n) -> n > 1 ? n - 1 : null);
+        count--;
+        return pathWatches.isEmpty();
+    }
+}
@@ -27,6 +27,8 @@ import java.util.Properties;
 import javax.swing.JComboBox;
 import javax.swing.JTextField;
 
+import org.apache.zookeeper.KeeperException;
+
 /**
  * A Manager for all interactions between the application and the Zookeeper
  * instance
@@ -60,12 +62,20 @@ public interface ZooInspectorManager extends ZooInspectorNodeManager, ZooInspect
     Pair<Map<String, List<String>>, Map<String, String>> getConnectionPropertiesTemplate();
 
     /**
+     * Notifies the node listener of every node created, deleted or changed
+     * in the subtrees of the selected nodes, until the watchers are removed.
+     * Waits for the server to add the watches, so must not be called on the
+     * Swing event dispatch thread.
+     *
      * @param selectedNodes - the nodes to add the watcher to
      * @param nodeListener - the node listener for this watcher
      */
     void addWatchers(Collection<String> selectedNodes, NodeListener nodeListener);
 
     /**
+     * Waits for the server to remove the watches, so must not be called on
+     * the Swing event dispatch thread.
+     *
      * @param selectedNodes - the nodes to remove the watchers from
      */
     void removeWatchers(Collection<String> selectedNodes);
@@ -113,4 +123,38 @@ public interface ZooInspectorManager extends ZooInspectorNodeManager, ZooInspect
      * @throws IOException - if the default configuration file cannot be saved
      */
     void saveDefaultConnectionFile(Properties props) throws IOException;
+
+    /**
+     * Writes a node and all of its descendants to an {@link ExportFile}.
+     * Interrupting the calling thread cancels the export.
+     *
+     * @param nodePath - the root of the subtree to export
+     * @param file     - the file to write the subtree to
+     * @param listener - the {@link ProgressListener} told how many nodes have
+     *                 been written
+     * @return the number of nodes written
+     * @throws IOException          - if the file cannot be written
+     * @throws KeeperException      - if a node cannot be read
+     * @throws InterruptedException - if the export was cancelled
+     */
+    long exportNodes(String nodePath, File file, ProgressListener listener)
+            throws IOException, KeeperException, InterruptedException;
+
+    /**
+     * Creates the nodes of an {@link ExportFile}. Interrupting the calling
+     * thread stops the import.
+     *
+     * @param file       - the export file to import
+     * @param parentPath - the node to import the exported subtree under, or
+     *                   null to import it where it was exported from
+     * @param policy     - what to do with nodes which already exist
+     * @param listener   - the {@link ProgressListener} told how many nodes
+     *                   have been read from the file
+     * @return the {@link ImportResult}
+     * @throws IOException          - if the file cannot be read
+     * @throws KeeperException      - if the import failed
+     * @throws InterruptedException - if the import was cancelled
+     */
+    ImportResult importNodes(File file, String parentPath, ImportPolicy policy, ProgressListener listener)
+            throws IOException, KeeperException, InterruptedException;
 }
@@ -17,6 +17,7 @@
  */
 package org.apache.zookeeper.inspector.manager;
 
+import org.apache.zookeeper.AddWatchMode;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.WatchedEvent;
@@ -24,13 +25,14 @@ import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.Watcher.Event.EventType;
 import org.apache.zookeeper.Watcher.Event.KeeperState;
 import org.apache.zookeeper.ZooDefs.Ids;
-import org.apache.zookeeper.ZooDefs.Perms;
 import org.apache.zookeeper.ZooKeeper;
 import org.apache.zookeeper.data.ACL;
 import org.apache.zookeeper.data.Stat;
 import org.apache.zookeeper.inspector.encryption.BasicDataEncryptionManager;
 import org.apache.zookeeper.inspector.encryption.DataEncryptionManager;
 import org.apache.zookeeper.inspector.logger.LoggerFactory;
+import org.apache.zookeeper.metrics.ZooKeeperMetrics;
+import org.apache.zookeeper.retry.RetryPolicy;
 import org.apache.zookeeper.retry.ZooKeeperRetry;
 
 import java.io.BufferedReader;
@@ -43,35 +45,26 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * A default implementation of {@link ZooInspectorManager} for connecting to
  * zookeeper instances
  */
 public class ZooInspectorManagerImpl implements ZooInspectorManager {
-    private static final String A_VERSION = "ACL Version";
-    private static final String C_TIME = "Creation Time";
-    private static final String C_VERSION = "Children Version";
-    private static final String CZXID = "Creation ID";
-    private static final String DATA_LENGTH = "Data Length";
-    private static final String EPHEMERAL_OWNER = "Ephemeral Owner";
-    private static final String M_TIME = "Last Modified Time";
-    private static final String MZXID = "Modified ID";
-    private static final String NUM_CHILDREN = "Number of Children";
-    private static final String PZXID = "Node ID";
-    private static final String VERSION = "Data Version";
-    private static final String ACL_PERMS = "Permissions";
-    private static final String ACL_SCHEME = "Scheme";
-    private static final String ACL_ID = "Id";
     private static final String SESSION_STATE = "Session State";
     private static final String SESSION_ID = "Session ID";
+    private static final String WATCHES = "Watches";
+    private static final String RETRIES = "Retries";
+    private static final String READ_SESSIONS = "Read Sessions";
+    private static final String HEDGED_READS = "Hedged Reads";
     /**
      * The key used for the connect string in the connection properties file
      */
@@ -93,8 +86,35 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
      * The key used for the authentication data in the connection properties file
      */
     public static final String AUTH_DATA_KEY = "authData";
+    /**
+     * The key used for the most nodes read and deleted per second when
+     * deleting a subtree in the connection properties file, 0 for no limit
+     */
+    public static final String DELETE_RATE_LIMIT = "deleteRateLimit";
+    /**
+     * The key used for the most requests in flight while importing an export
+     * file in the connection properties file
+     */
+    public static final String IMPORT_WINDOW = "importWindow";
+    /**
+     * The key used for the most watches held at once in the connection
+     * properties file
+     */
+    public static final String WATCH_BUDGET = "watchBudget";
+    /**
+     * The key used for the number of extra sessions bulk reads are spread
+     * over in the connection properties file, 0 for none
+     */
+    public static final String READ_SESSIONS_KEY = "readSessions";
+    /**
+     * The key used for whether slow reads are sent again to another server in
+     * the connection properties file, true or false
+     */
+    public static final String HEDGED_READS_KEY = "hedgedReads";
 
 
+    private static final int DEFAULT_IMPORT_WINDOW = 1000;
+
     private static final File defaultNodeViewersFile = new File("./etc/defaultNodeViewers.cfg");
     private static final File defaultConnectionFile = new File("./etc/defaultConnectionSettings.cfg");
 
@@ -110,7 +130,20 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
     private String defaultHosts;
     private String defaultAuthScheme;
     private String defaultAuthValue;
+    private String defaultDeleteRateLimit;
+    private int deleteRateLimit;
+    private String defaultImportWindow;
+    private int importWindow;
+    private String defaultWatchBudget;
+    private String defaultReadSessions;
+    private ReadSessionPool readSessionPool;
+    private ZooKeeperMetrics metrics;
+    private String defaultHedgedReads;
+    private HedgedReads hedgedReads;
+    private WatchRegistry watchRegistry;
+    private NodeEventDispatcher eventDispatcher;
     private NodesCache nodesCache;
+    private SearchIndex searchIndex;
 
     /**
      * @throws IOException - thrown if the default connection settings cannot be loaded
@@ -134,6 +167,11 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
                 String encryptionManager = connectionProps.getProperty(DATA_ENCRYPTION_MANAGER);
                 String authScheme = connectionProps.getProperty(AUTH_SCHEME_KEY);
                 String authData = connectionProps.getProperty(AUTH_DATA_KEY);
+                String deleteRateLimit = connectionProps.getProperty(DELETE_RATE_LIMIT);
+                String importWindow = connectionProps.getProperty(IMPORT_WINDOW);
+                String watchBudget = connectionProps.getProperty(WATCH_BUDGET);
+                String readSessions = connectionProps.getProperty(READ_SESSIONS_KEY);
+                boolean hedged = Boolean.parseBoolean(connectionProps.getProperty(HEDGED_READS_KEY));
 
                 if (connectString == null || sessionTimeout == null) {
                     throw new IllegalArgumentException("Both connect string and session timeout are required.");
@@ -151,16 +189,38 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
                 }
                 this.connectString = connectString;
                 this.sessionTimeout = Integer.parseInt(sessionTimeout);
+                this.deleteRateLimit = deleteRateLimit == null || deleteRateLimit.trim().isEmpty() ? 0
+                        : Integer.parseInt(deleteRateLimit.trim());
+                this.importWindow = importWindow == null || importWindow.trim().isEmpty() ? DEFAULT_IMPORT_WINDOW
+                        : Math.max(Integer.parseInt(importWindow.trim()), 1);
+                this.metrics = new ZooKeeperMetrics();
                 this.zooKeeper = new ZooKeeperRetry(connectString, Integer.parseInt(sessionTimeout), event -> {
                     if (event.getState() == KeeperState.Expired) {
                         connected = false;
+                        // the watches went with the session
+                        watchRegistry.clear();
                     }
-                });
+                }, new RetryPolicy(), metrics);
+                this.watchRegistry = new WatchRegistry(zooKeeper,
+                        watchBudget == null || watchBudget.trim().isEmpty() ? WatchRegistry.DEFAULT_BUDGET
+                                : Math.max(Integer.parseInt(watchBudget.trim()), 0));
                 if (authData != null && authData.length() > 0) {
                     this.zooKeeper.addAuthInfo(authScheme, authData.getBytes());
                 }
-                ((ZooKeeperRetry) this.zooKeeper).setRetryLimit(10);
                 connected = ((ZooKeeperRetry) this.zooKeeper).testConnection();
+                int readSessionCount = readSessions == null || readSessions.trim().isEmpty() ? 0
+                        : Integer.parseInt(readSessions.trim());
+                if (hedged) {
+                    // at least one session on every server to hedge on
+                    readSessionCount = Math.max(readSessionCount, ReadSessionPool.countServers(connectString));
+                }
+                if (connected && readSessionCount > 0) {
+                    this.readSessionPool = new ReadSessionPool(connectString, this.sessionTimeout, readSessionCount,
+                            authScheme, authData, metrics);
+                }
+                if (connected && hedged) {
+                    this.hedgedReads = new HedgedReads((ZooKeeperRetry) this.zooKeeper, this.readSessionPool);
+                }
             }
         } catch (Exception e) {
             connected = false;
@@ -169,7 +229,8 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
         if (!connected) {
             disconnect();
         } else {
-            this.nodesCache = new NodesCache(zooKeeper);
+            this.nodesCache = new NodesCache(zooKeeper, watchRegistry, hedgedReads);
+            this.eventDispatcher = new NodeEventDispatcher();
         }
         return connected;
     }
@@ -183,10 +244,29 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
     public boolean disconnect() {
         try {
             if (this.zooKeeper != null) {
+                replaceSearchIndex(null);
+                List<String> watched;
+                synchronized (this) {
+                    watched = new ArrayList<>(this.watchers.keySet());
+                }
+                removeWatchers(watched);
+                this.watchRegistry.removeAllWatches();
+                if (this.eventDispatcher != null) {
+                    this.eventDispatcher.shutdown();
+                    this.eventDispatcher = null;
+                }
+                if (this.hedgedReads != null) {
+                    this.hedgedReads.close();
+                    this.hedgedReads = null;
+                }
+                if (this.readSessionPool != null) {
+                    this.readSessionPool.close();
+                    this.readSessionPool = null;
+                }
                 this.zooKeeper.close();
                 this.zooKeeper = null;
+                this.metrics = null;
                 connected = false;
-                removeWatchers(this.watchers.keySet());
                 return true;
             }
         } catch (Exception e) {
@@ -210,6 +290,86 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
         return null;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @seeorg.apache.zookeeper.inspector.manager.ZooInspectorReadOnlyManager#
+     * getChildrenAsync(java.lang.String)
+     */
+    public CompletableFuture<List<String>> getChildrenAsync(String nodePath) {
+        return getChildrenAsync(nodePath, ChildrenOrder.LEXICOGRAPHIC);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @seeorg.apache.zookeeper.inspector.manager.ZooInspectorReadOnlyManager#
+     * getChildrenAsync(java.lang.String, ChildrenOrder)
+     */
+    public CompletableFuture<List<String>> getChildrenAsync(String nodePath, ChildrenOrder order) {
+        if (connected) {
+            return nodesCache.getChildrenAsync(nodePath, order).exceptionally(e -> {
+                logAsyncError("Error occurred retrieving child of node: " + nodePath, e);
+                return null;
+            });
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @seeorg.apache.zookeeper.inspector.manager.ZooInspectorReadOnlyManager#
+     * getStatAsync(java.lang.String)
+     */
+    public CompletableFuture<Stat> getStatAsync(String nodePath) {
+        if (connected) {
+            return nodesCache.getStatAsync(nodePath).exceptionally(e -> {
+                logAsyncError("Error occurred retrieving stat of node: " + nodePath, e);
+                return null;
+            });
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @seeorg.apache.zookeeper.inspector.manager.ZooInspectorReadOnlyManager#
+     * getNodeSnapshotAsync(java.lang.String)
+     */
+    public CompletableFuture<NodeSnapshot> getNodeSnapshotAsync(String nodePath) {
+        if (connected) {
+            String path = nodePath.length() == 0 ? "/" : nodePath;
+            // both requests are sent before either answer arrives, so the
+            // snapshot costs a single round trip
+            CompletableFuture<Pair<byte[], Stat>> data = nodesCache.getDataAsync(path);
+            CompletableFuture<List<ACL>> acls = nodesCache.getACLAsync(path);
+            DataEncryptionManager encryptionManager = this.encryptionManager;
+            return data.thenCombine(acls, (d, a) -> {
+                if (d == null || a == null) {
+                    return null;
+                }
+                try {
+                    return new NodeSnapshot(path, d.getKey(), encryptionManager.decryptData(d.getKey()), d.getValue(), a);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }).exceptionally(e -> {
+                logAsyncError("Error occurred retrieving snapshot of node: " + path, e);
+                return null;
+            });
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static void logAsyncError(String message, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (!(cause instanceof KeeperException.NoNodeException)) {
+            LoggerFactory.getLogger().error(message, cause);
+        }
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -223,10 +383,9 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
                 if (nodePath.length() == 0) {
                     nodePath = "/";
                 }
-                Stat s = zooKeeper.exists(nodePath, false);
-                if (s != null) {
-                    return this.encryptionManager.decryptData(zooKeeper
-                            .getData(nodePath, false, s));
+                byte[] data = nodesCache.getData(nodePath);
+                if (data != null) {
+                    return this.encryptionManager.decryptData(data);
                 }
             } catch (Exception e) {
                 LoggerFactory.getLogger().error(
@@ -269,7 +428,8 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
             if (parentPath.length() > 0) {
                 List<String> children = this.nodesCache.getChildren(parentPath);
                 if (children != null) {
-                    return children.indexOf(child);
+                    // the cached children are sorted, see NodesCache
+                    return Math.max(Collections.binarySearch(children, child), -1);
                 }
             }
         }
@@ -290,37 +450,11 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
                 if (nodePath.length() == 0) {
                     nodePath = "/";
                 }
-                Stat s = zooKeeper.exists(nodePath, false);
-                if (s != null) {
-                    List<ACL> acls = zooKeeper.getACL(nodePath, s);
-                    for (ACL acl : acls) {
-                        Map<String, String> aclMap = new LinkedHashMap<>();
-                        aclMap.put(ACL_SCHEME, acl.getId().getScheme());
-                        aclMap.put(ACL_ID, acl.getId().getId());
-                        StringJoiner sb = new StringJoiner(", ");
-                        int perms = acl.getPerms();
-
-                        if ((perms & Perms.READ) == Perms.READ) {
-                            sb.add("Read");
-                        }
-
-                        if ((perms & Perms.WRITE) == Perms.WRITE) {
-                            sb.add("Write");
-                        }
-                        if ((perms & Perms.CREATE) == Perms.CREATE) {
-                            sb.add("Create");
-                        }
-                        if ((perms & Perms.DELETE) == Perms.DELETE) {
-                            sb.add("Delete");
-                        }
-                        if ((perms & Perms.ADMIN) == Perms.ADMIN) {
-                            sb.add("Admin");
-                        }
-                        aclMap.put(ACL_PERMS, sb.toString());
-                        returnACLs.add(aclMap);
-                    }
+                List<ACL> acls = nodesCache.getACL(nodePath);
+                if (acls != null) {
+                    returnACLs.addAll(NodeSnapshot.toACLs(acls));
                 }
-            } catch (InterruptedException | KeeperException e) {
+            } catch (Exception e) {
                 LoggerFactory.getLogger().error("Error occurred retrieving ACLs of node: " + nodePath, e);
             }
         }
@@ -340,21 +474,9 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
                 if (nodePath.length() == 0) {
                     nodePath = "/";
                 }
-                Stat s = zooKeeper.exists(nodePath, false);
+                Stat s = nodesCache.getStat(nodePath);
                 if (s != null) {
-                    nodeMeta.put(A_VERSION, String.valueOf(s.getAversion()));
-                    nodeMeta.put(C_TIME, String.valueOf(s.getCtime()));
-                    nodeMeta.put(C_TIME + " (local)", new Date(s.getCtime()).toString());
-                    nodeMeta.put(C_VERSION, String.valueOf(s.getCversion()));
-                    nodeMeta.put(CZXID, String.valueOf(s.getCzxid()));
-                    nodeMeta.put(DATA_LENGTH, String.valueOf(s.getDataLength()));
-                    nodeMeta.put(EPHEMERAL_OWNER, String.valueOf(s.getEphemeralOwner()));
-                    nodeMeta.put(M_TIME, String.valueOf(s.getMtime()));
-                    nodeMeta.put(M_TIME + " (local)", new Date(s.getMtime()).toString());
-                    nodeMeta.put(MZXID, String.valueOf(s.getMzxid()));
-                    nodeMeta.put(NUM_CHILDREN, String.valueOf(s.getNumChildren()));
-                    nodeMeta.put(PZXID, String.valueOf(s.getPzxid()));
-                    nodeMeta.put(VERSION, String.valueOf(s.getVersion()));
+                    nodeMeta.putAll(NodeSnapshot.toNodeMeta(s));
                 }
             } catch (Exception e) {
                 LoggerFactory.getLogger().error(
@@ -375,7 +497,7 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
     public int getNumChildren(String nodePath) {
         if (connected) {
             try {
-                Stat s = zooKeeper.exists(nodePath, false);
+                Stat s = nodesCache.getStat(nodePath);
                 if (s != null) {
                     return s.getNumChildren();
                 }
@@ -408,7 +530,7 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
     public boolean isAllowsChildren(String nodePath) {
         if (connected) {
             try {
-                Stat s = zooKeeper.exists(nodePath, false);
+                Stat s = nodesCache.getStat(nodePath);
                 if (s != null) {
                     return s.getEphemeralOwner() == 0;
                 }
@@ -437,6 +559,15 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
                 sessionMeta.put(SESSION_STATE, String.valueOf(zooKeeper.getState().toString()));
                 sessionMeta.put(CONNECT_STRING, this.connectString);
                 sessionMeta.put(SESSION_TIMEOUT, String.valueOf(this.sessionTimeout));
+                sessionMeta.put(WATCHES, watchRegistry.getCount() + " of " + watchRegistry.getBudget()
+                        + (watchRegistry.getCount() > 0 ? " " + watchRegistry.getCounts() : ""));
+                sessionMeta.put(RETRIES, RetryPolicy.of(zooKeeper).toString());
+                if (readSessionPool != null) {
+                    sessionMeta.put(READ_SESSIONS, readSessionPool.getStates());
+                }
+                if (hedgedReads != null) {
+                    sessionMeta.put(HEDGED_READS, hedgedReads.toString());
+                }
             }
         } catch (Exception e) {
             LoggerFactory.getLogger().error(
@@ -445,6 +576,16 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
         return sessionMeta;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @seeorg.apache.zookeeper.inspector.manager.ZooInspectorReadOnlyManager#
+     * getMetrics()
+     */
+    public ZooKeeperMetrics getMetrics() {
+        return metrics;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -464,6 +605,7 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
                                         .encryptData(null), Ids.OPEN_ACL_UNSAFE,
                                 CreateMode.PERSISTENT
                         );
+                        nodesCache.invalidate(parent);
                         parent = node;
                     }
                 }
@@ -486,27 +628,157 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
      * (java.lang.String)
      */
     public boolean deleteNode(String nodePath) {
+        return deleteNode(nodePath, ProgressListener.NONE);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.zookeeper.inspector.manager.ZooInspectorNodeTreeManager#deleteNode
+     * (java.lang.String, ProgressListener)
+     */
+    public boolean deleteNode(String nodePath, ProgressListener listener) {
         if (connected) {
             try {
-                Stat s = zooKeeper.exists(nodePath, false);
-                if (s != null) {
-                    List<String> children = zooKeeper.getChildren(nodePath,
-                            false);
-                    for (String child : children) {
-                        String node = nodePath + "/" + child;
-                        deleteNode(node);
-                    }
-                    zooKeeper.delete(nodePath, -1);
-                }
+                new SubtreeDeleter(zooKeeper, deleteRateLimit, listener).delete(nodePath);
                 return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             } catch (Exception e) {
                 LoggerFactory.getLogger().error(
                         "Error occurred deleting node: " + nodePath, e);
+            } finally {
+                nodesCache.invalidate(nodePath);
+                nodesCache.invalidate(getParentPath(nodePath));
             }
         }
         return false;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.zookeeper.inspector.manager.ZooInspectorReadOnlyManager#
+     * getSubtreeUsage(java.lang.String, java.util.function.Consumer)
+     */
+    public List<SubtreeUsage> getSubtreeUsage(String nodePath, Consumer<List<SubtreeUsage>> listener)
+            throws IOException, KeeperException, InterruptedException {
+        if (!connected) {
+            throw new IOException("Not connected to ZooKeeper");
+        }
+        return new SubtreeUsageScanner(readSession(nodePath), listener).scan(nodePath);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.zookeeper.inspector.manager.ZooInspectorReadOnlyManager#
+     * findTopNodes(java.lang.String, int, ProgressListener)
+     */
+    public TopNodes findTopNodes(String nodePath, int count, ProgressListener listener)
+            throws IOException, KeeperException, InterruptedException {
+        if (!connected) {
+            throw new IOException("Not connected to ZooKeeper");
+        }
+        return new TopNodesScanner(readSession(nodePath), count, listener).scan(nodePath);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.zookeeper.inspector.manager.ZooInspectorReadOnlyManager#
+     * buildSearchIndex(java.lang.String, ProgressListener)
+     */
+    public SearchIndex buildSearchIndex(String nodePath, ProgressListener listener)
+            throws IOException, KeeperException, InterruptedException {
+        if (!connected) {
+            throw new IOException("Not connected to ZooKeeper");
+        }
+        SearchIndex index = new SearchIndex(zooKeeper, watchRegistry, encryptionManager, nodePath);
+        replaceSearchIndex(index);
+        try {
+            // the session is synced after the watch is set, so nothing is
+            // missed between the two
+            index.build(() -> readSession(nodePath), listener);
+            return index;
+        } catch (IOException | KeeperException | InterruptedException | RuntimeException e) {
+            index.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return a session of the read session pool synced on the path, or the
+     *         main session if there is no pool or none of its sessions is
+     *         connected
+     */
+    private ZooKeeper readSession(String nodePath) throws KeeperException, InterruptedException {
+        ReadSessionPool pool = readSessionPool;
+        ZooKeeper session = pool == null ? null : pool.sync(nodePath);
+        return session != null ? session : zooKeeper;
+    }
+
+    private synchronized void replaceSearchIndex(SearchIndex index) {
+        if (searchIndex != null) {
+            searchIndex.close();
+        }
+        searchIndex = index;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.zookeeper.inspector.manager.ZooInspectorManager#exportNodes
+     * (java.lang.String, java.io.File, ProgressListener)
+     */
+    public long exportNodes(String nodePath, File file, ProgressListener listener)
+            throws IOException, KeeperException, InterruptedException {
+        if (!connected) {
+            throw new IOException("Not connected to ZooKeeper");
+        }
+        try (ExportFile.Writer writer = ExportFile.openWriter(file)) {
+            // the crawler visits every node before its children, as the
+            // export file format requires
+            SubtreeCrawler crawler = new SubtreeCrawler(readSession(nodePath), true, true);
+            long exported = crawler.crawl(nodePath, node -> {
+                writer.write(node);
+                listener.progress(crawler.getVisited(), crawler.getVisited() + crawler.getPending());
+            });
+            writer.finish();
+            return exported;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.apache.zookeeper.inspector.manager.ZooInspectorManager#importNodes
+     * (java.io.File, java.lang.String, ImportPolicy, ProgressListener)
+     */
+    public ImportResult importNodes(File file, String parentPath, ImportPolicy policy, ProgressListener listener)
+            throws IOException, KeeperException, InterruptedException {
+        if (!connected) {
+            throw new IOException("Not connected to ZooKeeper");
+        }
+        try (ExportFile.Reader reader = ExportFile.openReader(file)) {
+            return new SubtreeImporter(zooKeeper, policy, importWindow, listener).importNodes(reader, parentPath);
+        } finally {
+            // the import may have changed any node, so start afresh
+            nodesCache.invalidateAll();
+        }
+    }
+
+    private static String getParentPath(String nodePath) {
+        int index = nodePath.lastIndexOf("/");
+        return index > 0 ? nodePath.substring(0, index) : "/";
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -519,6 +791,7 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
             try {
                 zooKeeper.setData(nodePath, this.encryptionManager
                         .encryptData(data), -1);
+                nodesCache.invalidate(nodePath);
                 return true;
             } catch (Exception e) {
                 LoggerFactory.getLogger().error(
@@ -541,12 +814,23 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
         template.put(DATA_ENCRYPTION_MANAGER, Collections.singletonList(defaultEncryptionManager));
         template.put(AUTH_SCHEME_KEY, Collections.singletonList(defaultAuthScheme));
         template.put(AUTH_DATA_KEY, Collections.singletonList(defaultAuthValue));
+        template.put(DELETE_RATE_LIMIT, Collections.singletonList(defaultDeleteRateLimit));
+        template.put(IMPORT_WINDOW, Collections.singletonList(defaultImportWindow));
+        template.put(WATCH_BUDGET, Collections.singletonList(defaultWatchBudget));
+        template.put(READ_SESSIONS_KEY, Collections.singletonList(defaultReadSessions));
+        template.put(HEDGED_READS_KEY, Boolean.parseBoolean(defaultHedgedReads) ? Arrays.asList("true", "false")
+                : Arrays.asList("false", "true"));
         Map<String, String> labels = new LinkedHashMap<>();
         labels.put(CONNECT_STRING, "Connect String");
         labels.put(SESSION_TIMEOUT, "Session Timeout");
         labels.put(DATA_ENCRYPTION_MANAGER, "Data Encryption Manager");
         labels.put(AUTH_SCHEME_KEY, "Authentication Scheme");
         labels.put(AUTH_DATA_KEY, "Authentication Data");
+        labels.put(DELETE_RATE_LIMIT, "Delete Rate Limit (nodes/s, 0 = none)");
+        labels.put(IMPORT_WINDOW, "Import Window (requests in flight)");
+        labels.put(WATCH_BUDGET, "Watch Budget (watches held)");
+        labels.put(READ_SESSIONS_KEY, "Read Sessions (for bulk reads, 0 = none)");
+        labels.put(HEDGED_READS_KEY, "Hedged Reads (resend slow reads to another server)");
         return new Pair<>(template, labels);
     }
 
@@ -558,13 +842,13 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
      * (java.util.Collection,
      * org.apache.zookeeper.inspector.manager.NodeListener)
      */
-    public void addWatchers(Collection<String> selectedNodes, NodeListener nodeListener) {
+    public synchronized void addWatchers(Collection<String> selectedNodes, NodeListener nodeListener) {
         // add watcher for each node and add node to collection of watched nodes
         if (connected) {
             for (String node : selectedNodes) {
                 if (!watchers.containsKey(node)) {
                     try {
-                        watchers.put(node, new NodeWatcher(node, nodeListener, zooKeeper));
+                        watchers.put(node, new NodeWatcher(node, nodeListener, watchRegistry, eventDispatcher));
                     } catch (Exception e) {
                         LoggerFactory.getLogger().error(
                                 "Error occurred adding node watcher for node: "
@@ -583,7 +867,7 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
      * org.apache.zookeeper.inspector.manager.ZooInspectorManager#removeWatchers
      * (java.util.Collection)
      */
-    public void removeWatchers(Collection<String> selectedNodes) {
+    public synchronized void removeWatchers(Collection<String> selectedNodes) {
         // remove watcher for each node and remove node from collection of watched nodes
         if (connected) {
             for (String node : selectedNodes) {
@@ -598,56 +882,64 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
     }
 
     /**
-     * A Watcher which will re-add itself every time an event is fired
+     * A Watcher set once as a persistent recursive watch, which reports every
+     * node created, deleted or changed in the subtree of the node without
+     * having to be re-added after each event. Events are handed to a
+     * {@link NodeEventDispatcher}, so the listener never runs on the
+     * zookeeper event thread.
      */
     public static class NodeWatcher implements Watcher {
 
         private final String nodePath;
         private final NodeListener nodeListener;
-        private final ZooKeeper zookeeper;
-        private boolean closed = false;
+        private final WatchRegistry watchRegistry;
+        private final NodeEventDispatcher eventDispatcher;
+        private volatile boolean closed = false;
 
         /**
-         * @param nodePath     - the path to the node to watch
-         * @param nodeListener the {@link NodeListener} for this node
-         * @param zookeeper    - a {@link ZooKeeper} to use to access zookeeper
+         * @param nodePath        - the path to the node to watch
+         * @param nodeListener    the {@link NodeListener} for this node
+         * @param watchRegistry   - the {@link WatchRegistry} to add the watch
+         *                        through
+         * @param eventDispatcher - the {@link NodeEventDispatcher} to deliver
+         *                        the events through
          * @throws InterruptedException
          * @throws KeeperException
+         * @throws IllegalStateException - if the watch budget is used up
          */
-        public NodeWatcher(String nodePath, NodeListener nodeListener, ZooKeeper zookeeper) throws KeeperException, InterruptedException {
+        public NodeWatcher(String nodePath, NodeListener nodeListener, WatchRegistry watchRegistry,
+                           NodeEventDispatcher eventDispatcher) throws KeeperException, InterruptedException {
             this.nodePath = nodePath;
             this.nodeListener = nodeListener;
-            this.zookeeper = zookeeper;
-            Stat s = this.zookeeper.exists(nodePath, this);
-//            if (s != null) {
-//                zookeeper.getChildren(nodePath, this);
-//            }
+            this.watchRegistry = watchRegistry;
+            this.eventDispatcher = eventDispatcher;
+            this.watchRegistry.addWatch(nodePath, this, AddWatchMode.PERSISTENT_RECURSIVE);
         }
 
         @Override
         public void process(WatchedEvent event) {
-            if (!closed) {
-                try {
-                    if (event.getType() != EventType.NodeDeleted) {
-                        Stat s = this.zookeeper.exists(nodePath, this);
-//                        if (s != null) {
-//                            zookeeper.getChildren(nodePath, this);
-//                        }
-                    }
-                } catch (Exception e) {
-                    LoggerFactory.getLogger().error(
-                            "Error occurred re-adding node watcher for node " + nodePath, e
-                    );
-                }
-                nodeListener.processEvent(event.getPath(), event.getType().name(), null);
+            // connection state changes are sent to every watcher, and the
+            // removal of the watch to the watcher removed
+            if (!closed && event.getType() != EventType.None
+                    && event.getType() != EventType.PersistentWatchRemoved) {
+                eventDispatcher.dispatch(nodeListener, event);
             }
         }
 
         /**
-         *
+         * Stops the notifications and removes the watch, through the
+         * {@link WatchRegistry} so that the server drops the watch on the
+         * path unless something else of the inspector still watches it
          */
         public void stop() {
             this.closed = true;
+            try {
+                this.watchRegistry.removeWatch(nodePath, this);
+            } catch (Exception e) {
+                LoggerFactory.getLogger().error(
+                        "Error occurred removing node watcher for node " + nodePath, e
+                );
+            }
         }
     }
 
@@ -692,12 +984,27 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
                     : props.getProperty(AUTH_SCHEME_KEY);
             defaultAuthValue = props.getProperty(AUTH_DATA_KEY) == null ? ""
                     : props.getProperty(AUTH_DATA_KEY);
+            defaultDeleteRateLimit = props.getProperty(DELETE_RATE_LIMIT) == null ? "0"
+                    : props.getProperty(DELETE_RATE_LIMIT);
+            defaultImportWindow = props.getProperty(IMPORT_WINDOW) == null ? String.valueOf(DEFAULT_IMPORT_WINDOW)
+                    : props.getProperty(IMPORT_WINDOW);
+            defaultWatchBudget = props.getProperty(WATCH_BUDGET) == null ? String.valueOf(WatchRegistry.DEFAULT_BUDGET)
+                    : props.getProperty(WATCH_BUDGET);
+            defaultReadSessions = props.getProperty(READ_SESSIONS_KEY) == null ? "0"
+                    : props.getProperty(READ_SESSIONS_KEY);
+            defaultHedgedReads = props.getProperty(HEDGED_READS_KEY) == null ? "false"
+                    : props.getProperty(HEDGED_READS_KEY);
         } else {
             defaultEncryptionManager = null;
             defaultTimeout = "5000";
             defaultHosts = "localhost:2181";
             defaultAuthScheme = "";
             defaultAuthValue = "";
+            defaultDeleteRateLimit = "0";
+            defaultImportWindow = String.valueOf(DEFAULT_IMPORT_WINDOW);
+            defaultWatchBudget = String.valueOf(WatchRegistry.DEFAULT_BUDGET);
+            defaultReadSessions = "0";
+            defaultHedgedReads = "false";
         }
     }
 
@@ -40,4 +40,17 @@ public interface ZooInspectorNodeTreeManager extends
      */
     public abstract boolean deleteNode(String nodePath);
 
+    /**
+     * Deletes a node and all of its descendants. Interrupting the calling
+     * thread cancels the delete, leaving the nodes not deleted yet in place.
+     *
+     * @param nodePath
+     *            - the path to the node to delete
+     * @param listener
+     *            - the {@link ProgressListener} told how many of the nodes
+     *            found so far have been deleted
+     * @return true if the node was successfully deleted
+     */
+    public abstract boolean deleteNode(String nodePath, ProgressListener listener);
+
 }
@@ -17,8 +17,15 @@
  */
 package org.apache.zookeeper.inspector.manager;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.metrics.ZooKeeperMetrics;
 
 /**
  * A Manager for all read only interactions between the application and a node
@@ -52,6 +59,13 @@ public interface ZooInspectorReadOnlyManager {
      */
     public abstract Map<String, String> getSessionMeta();
 
+    /**
+     * @return the counts, errors, retries, bytes and latencies of the requests
+     *         sent by the current connection, by type of request, or null if
+     *         not connected
+     */
+    public abstract ZooKeeperMetrics getMetrics();
+
     /**
      * @param nodePath
      *            - the path to the node to delete
@@ -92,8 +106,123 @@ public interface ZooInspectorReadOnlyManager {
     /**
      * @param nodePath
      *            - the path to the node to delete
-     * @return a {@link List} of the children of the node
+     * @return a sorted, unmodifiable {@link List} of the children of the node
      */
     public abstract List<String> getChildren(String nodePath);
 
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return a {@link CompletableFuture} for a sorted, unmodifiable
+     *         {@link List} of the children of the node, completed with null if
+     *         the children cannot be retrieved. The future may be completed
+     *         on a zookeeper thread and must not be waited for on the Swing
+     *         event dispatch thread.
+     */
+    public abstract CompletableFuture<List<String>> getChildrenAsync(String nodePath);
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @param order
+     *            - the {@link ChildrenOrder} to list the children in
+     * @return a {@link CompletableFuture} for an unmodifiable {@link List} of
+     *         the children of the node in the given order, completed with null
+     *         if the children cannot be retrieved. The future may be completed
+     *         on a zookeeper thread and must not be waited for on the Swing
+     *         event dispatch thread.
+     */
+    public abstract CompletableFuture<List<String>> getChildrenAsync(String nodePath, ChildrenOrder order);
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return a {@link CompletableFuture} for the {@link Stat} of the node,
+     *         completed with null if the node does not exist. The future may
+     *         be completed on a zookeeper thread and must not be waited for on
+     *         the Swing event dispatch thread.
+     */
+    public abstract CompletableFuture<Stat> getStatAsync(String nodePath);
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return a {@link CompletableFuture} for the data, {@link Stat} and ACLs
+     *         of the node, all requested at once, completed with null if the
+     *         node does not exist or cannot be read. The future may be
+     *         completed on a zookeeper thread and must not be waited for on
+     *         the Swing event dispatch thread.
+     */
+    public abstract CompletableFuture<NodeSnapshot> getNodeSnapshotAsync(String nodePath);
+
+    /**
+     * Measures the subtree of every child of a node. This reads every node
+     * below the node and must not be called on the Swing event dispatch
+     * thread; interrupting the calling thread cancels it. Nodes the session
+     * may not read are counted and their subtrees left out.
+     * 
+     * @param nodePath
+     *            - the path to the node
+     * @param listener
+     *            - called on the calling thread with partial results while
+     *            the subtrees are crawled, largest data size first
+     * @return the {@link SubtreeUsage} of every child of the node, largest
+     *         data size first
+     * @throws IOException
+     *             - if not connected
+     * @throws KeeperException
+     *             - if a node could not be read
+     * @throws InterruptedException
+     *             - if the calling thread was interrupted
+     */
+    public abstract List<SubtreeUsage> getSubtreeUsage(String nodePath, Consumer<List<SubtreeUsage>> listener)
+            throws IOException, KeeperException, InterruptedException;
+
+    /**
+     * Finds the nodes with the most data and the nodes with the most children
+     * in a subtree, reading only their {@link Stat}s. This reads every node of
+     * the subtree and must not be called on the Swing event dispatch thread;
+     * interrupting the calling thread cancels it. Nodes the session may not
+     * read are counted and their subtrees left out.
+     * 
+     * @param nodePath
+     *            - the path to the root of the subtree
+     * @param count
+     *            - the number of nodes to find for each list
+     * @param listener
+     *            - the {@link ProgressListener} to report the nodes scanned to
+     * @return the {@link TopNodes} found
+     * @throws IOException
+     *             - if not connected
+     * @throws KeeperException
+     *             - if a node could not be read
+     * @throws InterruptedException
+     *             - if the calling thread was interrupted
+     */
+    public abstract TopNodes findTopNodes(String nodePath, int count, ProgressListener listener)
+            throws IOException, KeeperException, InterruptedException;
+
+    /**
+     * Builds a {@link SearchIndex} of a subtree, replacing the one built
+     * before, if any. The index is kept up to date until it is replaced or
+     * the manager disconnects. This reads every node of the subtree and must
+     * not be called on the Swing event dispatch thread; interrupting the
+     * calling thread cancels it. Nodes the session may not read are counted
+     * and their subtrees left out.
+     * 
+     * @param nodePath
+     *            - the path to the root of the subtree
+     * @param listener
+     *            - the {@link ProgressListener} to report the nodes indexed to
+     * @return the {@link SearchIndex} built
+     * @throws IOException
+     *             - if not connected
+     * @throws KeeperException
+     *             - if a node could not be read
+     * @throws InterruptedException
+     *             - if the calling thread was interrupted
+     */
+    public abstract SearchIndex buildSearchIndex(String nodePath, ProgressListener listener)
+            throws IOException, KeeperException, InterruptedException;
+
 }
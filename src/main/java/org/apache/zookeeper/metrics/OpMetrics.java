@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters and latency distribution of one type of request. All of them
+ * are lock free and recording a call allocates nothing.
+ */
+public class OpMetrics {
+    private final OpType type;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    OpMetrics(OpType type) {
+        this.type = type;
+    }
+
+    /**
+     * Records a finished call
+     *
+     * @param startNanos    - the {@link System#nanoTime()} the call started at
+     * @param failed        - whether the call failed
+     * @param retries       - the number of times the request was sent again
+     * @param bytesSent     - the paths and data sent
+     * @param bytesReceived - the data, names and ids received
+     */
+    public void record(long startNanos, boolean failed, int retries, long bytesSent, long bytesReceived) {
+        latency.record((System.nanoTime() - startNanos) / 1000);
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        if (retries > 0) {
+            this.retries.add(retries);
+        }
+        this.bytesSent.add(bytesSent);
+        this.bytesReceived.add(bytesReceived);
+    }
+
+    /**
+     * @return the type of request
+     */
+    public OpType getType() {
+        return type;
+    }
+
+    /**
+     * @return the number of calls
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * @return the number of calls which failed
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * @return the number of times requests were sent again after the
+     *         connection was lost
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * @return the bytes of paths and data sent
+     */
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * @return the bytes of data, child names and ACL ids received
+     */
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /**
+     * @return the distribution of the latencies of the calls
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
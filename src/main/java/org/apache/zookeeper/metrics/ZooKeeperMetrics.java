@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.retry.ZooKeeperRetry;
+
+/**
+ * What a client asked of the ensemble, by type of request: the number of
+ * calls, errors and retries, the bytes sent and received and the
+ * distribution of the latencies. One instance can be shared by several
+ * sessions, to add up what they all sent.
+ * <p>
+ * The bytes are those of the paths, data, child names and ACL ids, not of
+ * the framing of the protocol, and names are counted in characters.
+ */
+public class ZooKeeperMetrics {
+    private static final ZooKeeperMetrics NONE = new ZooKeeperMetrics();
+
+    private final OpMetrics[] ops = new OpMetrics[OpType.values().length];
+
+    public ZooKeeperMetrics() {
+        for (OpType type : OpType.values()) {
+            ops[type.ordinal()] = new OpMetrics(type);
+        }
+    }
+
+    /**
+     * @param zooKeeper - a session
+     * @return the metrics of the session if it is a {@link ZooKeeperRetry},
+     *         otherwise empty metrics which nothing records to
+     */
+    public static ZooKeeperMetrics of(ZooKeeper zooKeeper) {
+        return zooKeeper instanceof ZooKeeperRetry ? ((ZooKeeperRetry) zooKeeper).getMetrics() : NONE;
+    }
+
+    /**
+     * @param type - the type of request
+     * @return the metrics of the type of request
+     */
+    public OpMetrics get(OpType type) {
+        return ops[type.ordinal()];
+    }
+
+    /**
+     * @return the metrics of every type of request, in the order of
+     *         {@link OpType}
+     */
+    public List<OpMetrics> getAll() {
+        return Collections.unmodifiableList(Arrays.asList(ops));
+    }
+}
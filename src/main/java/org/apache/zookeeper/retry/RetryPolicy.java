@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.retry;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.Watcher.Event.EventType;
+import org.apache.zookeeper.Watcher.Event.KeeperState;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.inspector.logger.LoggerFactory;
+
+/**
+ * Decides whether and when a request which failed with a
+ * {@link KeeperException.ConnectionLossException} is sent again.
+ * <p>
+ * Retries back off exponentially from the base delay up to the max delay,
+ * each delay drawn at random from its upper half so that clients which lost
+ * the connection together do not retry together. A request is given up once
+ * it has been retried max retries times, or the next retry would start after
+ * the max elapsed time.
+ * <p>
+ * The policy also acts as a circuit breaker: once it has been told that the
+ * session is disconnected, new requests fail fast until the session is
+ * connected again, instead of queuing up against an ensemble which is, for
+ * example, electing a leader. Requests already being retried keep backing
+ * off, so they complete as soon as the session is back.
+ */
+public class RetryPolicy {
+    /**
+     * The max retries which means no limit other than the max elapsed time
+     */
+    public static final int UNLIMITED = -1;
+
+    /**
+     * The number of retries used by the default policy
+     */
+    public static final int DEFAULT_MAX_RETRIES = 10;
+
+    /**
+     * The delay, in milliseconds, before the first retry of the default policy
+     */
+    public static final long DEFAULT_BASE_DELAY = 50;
+
+    /**
+     * The longest delay, in milliseconds, between retries of the default policy
+     */
+    public static final long DEFAULT_MAX_DELAY = 5000;
+
+    /**
+     * The time, in milliseconds, after which the default policy gives up
+     */
+    public static final long DEFAULT_MAX_ELAPSED = 30000;
+
+    private static final RetryPolicy DEFAULT = new RetryPolicy();
+
+    private final int maxRetries;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final long maxElapsed;
+    private volatile boolean disconnected;
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates the default policy
+     */
+    public RetryPolicy() {
+        this(DEFAULT_MAX_RETRIES, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY, DEFAULT_MAX_ELAPSED);
+    }
+
+    /**
+     * @param maxRetries - the most times a request is retried, or
+     *                   {@link #UNLIMITED}
+     * @param baseDelay  - the delay, in milliseconds, before the first retry
+     * @param maxDelay   - the longest delay, in milliseconds, between retries
+     * @param maxElapsed - the time, in milliseconds, since the first attempt
+     *                   after which a request is given up
+     */
+    public RetryPolicy(int maxRetries, long baseDelay, long maxDelay, long maxElapsed) {
+        this.maxRetries = maxRetries;
+        this.baseDelay = Math.max(baseDelay, 1);
+        this.maxDelay = Math.max(maxDelay, this.baseDelay);
+        this.maxElapsed = maxElapsed;
+    }
+
+    /**
+     * @param zooKeeper - a session
+     * @return the policy of the session if it is a {@link ZooKeeperRetry},
+     *         otherwise a shared default policy
+     */
+    public static RetryPolicy of(ZooKeeper zooKeeper) {
+        return zooKeeper instanceof ZooKeeperRetry ? ((ZooKeeperRetry) zooKeeper).getRetryPolicy() : DEFAULT;
+    }
+
+    /**
+     * @param watcher - the default watcher of a session, or null
+     * @return a watcher which keeps the circuit breaker up to date with the
+     *         state of the session before passing events on to the given one
+     */
+    public Watcher watch(final Watcher watcher) {
+        return event -> {
+            if (event.getType() == EventType.None) {
+                connectionStateChanged(event.getState());
+            }
+            if (watcher != null) {
+                watcher.process(event);
+            }
+        };
+    }
+
+    /**
+     * Opens the circuit breaker while the session is disconnected
+     * 
+     * @param state - the new state of the session
+     */
+    public void connectionStateChanged(KeeperState state) {
+        switch (state) {
+            case Disconnected:
+                disconnected = true;
+                break;
+            case SyncConnected:
+            case ConnectedReadOnly:
+                disconnected = false;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @return true while the circuit breaker is open, failing new requests
+     */
+    public boolean isOpen() {
+        return disconnected;
+    }
+
+    /**
+     * Fails fast while the circuit breaker is open
+     * 
+     * @param path - the path of the request about to be sent
+     * @throws KeeperException.ConnectionLossException - if the session is
+     *                                                 disconnected
+     */
+    public void checkConnected(String path) throws KeeperException.ConnectionLossException {
+        if (disconnected) {
+            rejected.increment();
+            throw (KeeperException.ConnectionLossException) KeeperException.create(
+                    KeeperException.Code.CONNECTIONLOSS, path);
+        }
+    }
+
+    /**
+     * @return the retry state of a request about to be sent for the first
+     *         time
+     */
+    public Retry start() {
+        return new Retry();
+    }
+
+    /**
+     * @return the number of requests sent again
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * @return the number of requests given up after retrying
+     */
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    /**
+     * @return the number of requests failed fast by the circuit breaker
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return getRetries() + " retried, " + getExhausted() + " given up, " + getRejected() + " failed fast";
+    }
+
+    /**
+     * The retries of a single request
+     */
+    public class Retry {
+        private final long start = System.nanoTime();
+        private int attempt;
+
+        private Retry() {
+        }
+
+        /**
+         * Waits before sending the request again, or gives up
+         * 
+         * @param e - the connection loss the request failed with
+         * @throws KeeperException      - the given exception, if the request
+         *                              is given up
+         * @throws InterruptedException - if interrupted while waiting
+         */
+        public void backoff(KeeperException e) throws KeeperException, InterruptedException {
+            long delay = nextDelay();
+            if (delay < 0) {
+                throw e;
+            }
+            Thread.sleep(delay);
+        }
+
+        /**
+         * Schedules the request to be sent again, for requests sent with the
+         * asynchronous API, which must not wait on the zookeeper event thread
+         * 
+         * @param retry - sends the request again
+         * @return false if the request is given up
+         */
+        public boolean later(Runnable retry) {
+            long delay = nextDelay();
+            if (delay < 0) {
+                return false;
+            }
+            Scheduler.INSTANCE.schedule(retry, delay, TimeUnit.MILLISECONDS);
+            return true;
+        }
+
+        /**
+         * @return the number of times the request has been retried
+         */
+        public int getAttempts() {
+            return attempt;
+        }
+
+        private long nextDelay() {
+            long delay = Math.min(baseDelay << Math.min(attempt, 30), maxDelay);
+            delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if ((maxRetries != UNLIMITED && attempt >= maxRetries) || elapsed + delay > maxElapsed) {
+                exhausted.increment();
+                return -1;
+            }
+            attempt++;
+            retries.increment();
+            LoggerFactory.getLogger().warn("ZooKeeper connection lost.  Retrying in " + delay + "ms.");
+            return delay;
+        }
+    }
+
+    /**
+     * The thread sending asynchronous retries, only started when first needed
+     */
+    private static class Scheduler {
+        static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ZooKeeper retries");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
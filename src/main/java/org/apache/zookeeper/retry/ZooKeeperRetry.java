@@ -18,35 +18,75 @@
 package org.apache.zookeeper.retry;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.net.SocketAddress;
 import java.util.List;
 
+import org.apache.zookeeper.AsyncCallback.ACLCallback;
+import org.apache.zookeeper.AsyncCallback.Children2Callback;
+import org.apache.zookeeper.AsyncCallback.DataCallback;
+import org.apache.zookeeper.AsyncCallback.MultiCallback;
+import org.apache.zookeeper.AsyncCallback.StatCallback;
+import org.apache.zookeeper.AsyncCallback.StringCallback;
+import org.apache.zookeeper.AsyncCallback.VoidCallback;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.ZooKeeper;
 import org.apache.zookeeper.data.ACL;
 import org.apache.zookeeper.data.Stat;
 import org.apache.zookeeper.inspector.logger.LoggerFactory;
+import org.apache.zookeeper.metrics.OpMetrics;
+import org.apache.zookeeper.metrics.OpType;
+import org.apache.zookeeper.metrics.ZooKeeperMetrics;
 
 /**
  * A Class which extends {@link ZooKeeper} and will automatically retry calls to
- * zookeeper if a {@link KeeperException.ConnectionLossException} occurs
+ * zookeeper if a {@link KeeperException.ConnectionLossException} occurs, as
+ * its {@link RetryPolicy} allows. Once the policy gives up, or fails a call
+ * fast while the session is disconnected, the
+ * {@link KeeperException.ConnectionLossException} is thrown.
+ * <p>
+ * Every call, synchronous or not, is recorded in the {@link ZooKeeperMetrics}
+ * of the session. Asynchronous calls are not retried here but sent again by
+ * their callers, so for those a reply lost with the connection is counted as
+ * a retry and the call sent again as another call.
  */
 public class ZooKeeperRetry extends ZooKeeper {
 
     private boolean closed = false;
     private final Watcher watcher;
-    private int limit = -1;
+    private final RetryPolicy retryPolicy;
+    private final ZooKeeperMetrics metrics;
 
     public ZooKeeperRetry(String connectString, int sessionTimeout, Watcher watcher) throws IOException {
-        super(connectString, sessionTimeout, watcher);
+        this(connectString, sessionTimeout, watcher, new RetryPolicy());
+    }
+
+    public ZooKeeperRetry(String connectString, int sessionTimeout, Watcher watcher, RetryPolicy retryPolicy) throws IOException {
+        this(connectString, sessionTimeout, watcher, retryPolicy, new ZooKeeperMetrics());
+    }
+
+    public ZooKeeperRetry(String connectString, int sessionTimeout, Watcher watcher, RetryPolicy retryPolicy,
+                          ZooKeeperMetrics metrics) throws IOException {
+        super(connectString, sessionTimeout, retryPolicy.watch(watcher));
         this.watcher = watcher;
+        this.retryPolicy = retryPolicy;
+        this.metrics = metrics;
     }
 
     public ZooKeeperRetry(String connectString, int sessionTimeout, Watcher watcher, long sessionId, byte[] sessionPasswd) throws IOException {
-        super(connectString, sessionTimeout, watcher, sessionId, sessionPasswd);
+        this(connectString, sessionTimeout, watcher, sessionId, sessionPasswd, new RetryPolicy());
+    }
+
+    public ZooKeeperRetry(String connectString, int sessionTimeout, Watcher watcher, long sessionId, byte[] sessionPasswd,
+                          RetryPolicy retryPolicy) throws IOException {
+        super(connectString, sessionTimeout, retryPolicy.watch(watcher), sessionId, sessionPasswd);
         this.watcher = watcher;
+        this.retryPolicy = retryPolicy;
+        this.metrics = new ZooKeeperMetrics();
     }
 
     @Override
@@ -57,184 +97,332 @@ public class ZooKeeperRetry extends ZooKeeper {
 
     @Override
     public String create(String path, byte[] data, List<ACL> acl, CreateMode createMode) throws KeeperException, InterruptedException {
-        int count = 0;
-        do {
-            try {
-                return super.create(path, data, acl, createMode);
-            } catch (KeeperException.ConnectionLossException e) {
-                LoggerFactory.getLogger().warn("ZooKeeper connection lost.  Trying to reconnect.");
-                if (exists(path, false) != null) {
+        long start = System.nanoTime();
+        RetryPolicy.Retry retry = start(OpType.CREATE, start, path);
+        long sent = path.length() + length(data);
+        try {
+            while (true) {
+                try {
+                    String created = super.create(path, data, acl, createMode);
+                    record(OpType.CREATE, start, retry, false, sent, created.length());
+                    return created;
+                } catch (KeeperException.ConnectionLossException e) {
+                    backoff(retry, e);
+                    try {
+                        if (super.exists(path, null) != null) {
+                            record(OpType.CREATE, start, retry, false, sent, 0);
+                            return path;
+                        }
+                    } catch (KeeperException.ConnectionLossException ignored) {
+                        // retried along with the create
+                    }
+                } catch (KeeperException.NodeExistsException e) {
+                    record(OpType.CREATE, start, retry, false, sent, 0);
                     return path;
                 }
-            } catch (KeeperException.NodeExistsException e) {
-                return path;
             }
-        } while (!closed && (limit == -1 || count++ < limit));
-
-        return null;
+        } catch (KeeperException e) {
+            record(OpType.CREATE, start, retry, true, sent, 0);
+            throw e;
+        }
     }
 
     @Override
     public void delete(String path, int version) throws InterruptedException, KeeperException {
-        int count = 0;
-        do {
-            try {
-                super.delete(path, version);
-            } catch (KeeperException.ConnectionLossException e) {
-                LoggerFactory.getLogger().warn("ZooKeeper connection lost.  Trying to reconnect.");
-                if (exists(path, false) == null) {
+        long start = System.nanoTime();
+        RetryPolicy.Retry retry = start(OpType.DELETE, start, path);
+        try {
+            while (true) {
+                try {
+                    super.delete(path, version);
+                    record(OpType.DELETE, start, retry, false, path.length(), 0);
+                    return;
+                } catch (KeeperException.ConnectionLossException e) {
+                    backoff(retry, e);
+                    try {
+                        if (super.exists(path, null) == null) {
+                            record(OpType.DELETE, start, retry, false, path.length(), 0);
+                            return;
+                        }
+                    } catch (KeeperException.ConnectionLossException ignored) {
+                        // retried along with the delete
+                    }
+                } catch (KeeperException.NoNodeException e) {
+                    record(OpType.DELETE, start, retry, false, path.length(), 0);
                     return;
                 }
-            } catch (KeeperException.NoNodeException e) {
-                break;
             }
-        } while (!closed && (limit == -1 || count++ < limit));
+        } catch (KeeperException e) {
+            record(OpType.DELETE, start, retry, true, path.length(), 0);
+            throw e;
+        }
     }
 
     @Override
     public Stat exists(String path, boolean watch) throws KeeperException, InterruptedException {
-        int count = 0;
-        do {
-            try {
-                return super.exists(path, watch ? watcher : null);
-            } catch (KeeperException.ConnectionLossException e) {
-                LoggerFactory.getLogger().warn("ZooKeeper connection lost.  Trying to reconnect.");
-            }
-        } while (!closed && (limit == -1 || count++ < limit));
-
-        return null;
+        return exists(path, watch ? watcher : null);
     }
 
     @Override
     public Stat exists(String path, Watcher watcher) throws KeeperException, InterruptedException {
-        int count = 0;
-        do {
-            try {
-                return super.exists(path, watcher);
-            } catch (KeeperException.ConnectionLossException e) {
-                LoggerFactory.getLogger().warn("ZooKeeper connection lost.  Trying to reconnect.");
+        long start = System.nanoTime();
+        RetryPolicy.Retry retry = start(OpType.EXISTS, start, path);
+        try {
+            while (true) {
+                try {
+                    Stat stat = super.exists(path, watcher);
+                    record(OpType.EXISTS, start, retry, false, path.length(), 0);
+                    return stat;
+                } catch (KeeperException.ConnectionLossException e) {
+                    backoff(retry, e);
+                }
             }
-        } while (!closed && (limit == -1 || count++ < limit));
-
-        return null;
+        } catch (KeeperException e) {
+            record(OpType.EXISTS, start, retry, true, path.length(), 0);
+            throw e;
+        }
     }
 
     @Override
     public List<ACL> getACL(String path, Stat stat) throws KeeperException, InterruptedException {
-        int count = 0;
-        do {
-            try {
-                return super.getACL(path, stat);
-            } catch (KeeperException.ConnectionLossException e) {
-                LoggerFactory.getLogger().warn("ZooKeeper connection lost.  Trying to reconnect.");
+        long start = System.nanoTime();
+        RetryPolicy.Retry retry = start(OpType.GET_ACL, start, path);
+        try {
+            while (true) {
+                try {
+                    List<ACL> acl = super.getACL(path, stat);
+                    record(OpType.GET_ACL, start, retry, false, path.length(), length(acl));
+                    return acl;
+                } catch (KeeperException.ConnectionLossException e) {
+                    backoff(retry, e);
+                }
             }
-        } while (!closed && (limit == -1 || count++ < limit));
-
-        return null;
+        } catch (KeeperException e) {
+            record(OpType.GET_ACL, start, retry, true, path.length(), 0);
+            throw e;
+        }
     }
 
     @Override
     public List<String> getChildren(String path, boolean watch) throws KeeperException, InterruptedException {
-        int count = 0;
-        do {
-            try {
-                return super.getChildren(path, watch ? watcher : null);
-            } catch (KeeperException.ConnectionLossException e) {
-                LoggerFactory.getLogger().warn("ZooKeeper connection lost.  Trying to reconnect.");
-            }
-        } while (!closed && (limit == -1 || count++ < limit));
-
-        return new ArrayList<>();
+        return getChildren(path, watch ? watcher : null);
     }
 
     @Override
     public List<String> getChildren(String path, Watcher watcher) throws KeeperException, InterruptedException {
-        int count = 0;
-        do {
-            try {
-                return super.getChildren(path, watcher);
-            } catch (KeeperException.ConnectionLossException e) {
-                LoggerFactory.getLogger().warn("ZooKeeper connection lost.  Trying to reconnect.");
+        long start = System.nanoTime();
+        RetryPolicy.Retry retry = start(OpType.GET_CHILDREN, start, path);
+        try {
+            while (true) {
+                try {
+                    List<String> children = super.getChildren(path, watcher);
+                    record(OpType.GET_CHILDREN, start, retry, false, path.length(), namesLength(children));
+                    return children;
+                } catch (KeeperException.ConnectionLossException e) {
+                    backoff(retry, e);
+                }
             }
-        } while (!closed && (limit == -1 || count++ < limit));
-
-        return new ArrayList<>();
+        } catch (KeeperException e) {
+            record(OpType.GET_CHILDREN, start, retry, true, path.length(), 0);
+            throw e;
+        }
     }
 
     @Override
     public byte[] getData(String path, boolean watch, Stat stat) throws KeeperException, InterruptedException {
-        int count = 0;
-        do {
-            try {
-                return super.getData(path, watch ? watcher : null, stat);
-            } catch (KeeperException.ConnectionLossException e) {
-                LoggerFactory.getLogger().warn("ZooKeeper connection lost.  Trying to reconnect.");
-            }
-        } while (!closed && (limit == -1 || count++ < limit));
-
-        return null;
+        return getData(path, watch ? watcher : null, stat);
     }
 
     @Override
     public byte[] getData(String path, Watcher watcher, Stat stat) throws KeeperException, InterruptedException {
-        int count = 0;
-        do {
-            try {
-                return super.getData(path, watcher, stat);
-            } catch (KeeperException.ConnectionLossException e) {
-                LoggerFactory.getLogger().warn("ZooKeeper connection lost.  Trying to reconnect.");
+        long start = System.nanoTime();
+        RetryPolicy.Retry retry = start(OpType.GET_DATA, start, path);
+        try {
+            while (true) {
+                try {
+                    byte[] data = super.getData(path, watcher, stat);
+                    record(OpType.GET_DATA, start, retry, false, path.length(), length(data));
+                    return data;
+                } catch (KeeperException.ConnectionLossException e) {
+                    backoff(retry, e);
+                }
             }
-        } while (!closed && (limit == -1 || count++ < limit));
-
-        return null;
+        } catch (KeeperException e) {
+            record(OpType.GET_DATA, start, retry, true, path.length(), 0);
+            throw e;
+        }
     }
 
+    /**
+     * A write made against a version which is lost with the connection is
+     * checked against the {@link Stat} of the node before it is sent again:
+     * if the ACL version moved on by exactly one, the write is taken to have
+     * been applied. A write made against any version is simply sent again,
+     * which leaves the node with the same ACL either way.
+     */
     @Override
     public Stat setACL(String path, List<ACL> acl, int version) throws KeeperException, InterruptedException {
-        int count = 0;
-        do {
-            try {
-                return super.setACL(path, acl, version);
-            } catch (KeeperException.ConnectionLossException e) {
-                LoggerFactory.getLogger().warn("ZooKeeper connection lost.  Trying to reconnect.");
-                Stat s = exists(path, false);
-                if (s != null) {
-                    if (getACL(path, s).equals(acl)) {
-                        return s;
+        long start = System.nanoTime();
+        RetryPolicy.Retry retry = start(OpType.SET_ACL, start, path);
+        long sent = path.length() + length(acl);
+        try {
+            while (true) {
+                try {
+                    Stat s = super.setACL(path, acl, version);
+                    record(OpType.SET_ACL, start, retry, false, sent, 0);
+                    return s;
+                } catch (KeeperException.ConnectionLossException e) {
+                    backoff(retry, e);
+                    if (version != -1) {
+                        Stat s = appliedStat(path, version, false);
+                        if (s != null) {
+                            record(OpType.SET_ACL, start, retry, false, sent, 0);
+                            return s;
+                        }
                     }
-                } else {
-                    return null;
                 }
             }
-        } while (!closed && (limit == -1 || count++ < limit));
-
-        return null;
+        } catch (KeeperException e) {
+            record(OpType.SET_ACL, start, retry, true, sent, 0);
+            throw e;
+        }
     }
 
+    /**
+     * A write made against a version which is lost with the connection is
+     * checked against the {@link Stat} of the node before it is sent again,
+     * rather than by reading the data back: if the data version moved on by
+     * exactly one and the data length matches, the write is taken to have
+     * been applied. A write made against any version is simply sent again,
+     * which leaves the node with the same data either way.
+     */
     @Override
     public Stat setData(String path, byte[] data, int version) throws KeeperException, InterruptedException {
-        int count = 0;
-        do {
-            try {
-                return super.setData(path, data, version);
-            } catch (KeeperException.ConnectionLossException e) {
-                LoggerFactory.getLogger().warn("ZooKeeper connection lost.  Trying to reconnect.");
-                Stat s = exists(path, false);
-                if (s != null) {
-                    if (getData(path, false, s) == data) {
-                        return s;
+        long start = System.nanoTime();
+        RetryPolicy.Retry retry = start(OpType.SET_DATA, start, path);
+        long sent = path.length() + length(data);
+        try {
+            while (true) {
+                try {
+                    Stat s = super.setData(path, data, version);
+                    record(OpType.SET_DATA, start, retry, false, sent, 0);
+                    return s;
+                } catch (KeeperException.ConnectionLossException e) {
+                    backoff(retry, e);
+                    if (version != -1) {
+                        Stat s = appliedStat(path, version, true);
+                        if (s != null && s.getDataLength() == length(data)) {
+                            record(OpType.SET_DATA, start, retry, false, sent, 0);
+                            return s;
+                        }
                     }
-                } else {
-                    return null;
                 }
             }
-        } while (!closed && (limit == -1 || count++ < limit));
+        } catch (KeeperException e) {
+            record(OpType.SET_DATA, start, retry, true, sent, 0);
+            throw e;
+        }
+    }
+
+    /**
+     * A multi is not retried, as whether it was applied cannot be told in
+     * general once the connection is lost
+     */
+    @Override
+    public List<OpResult> multi(Iterable<Op> ops) throws InterruptedException, KeeperException {
+        long start = System.nanoTime();
+        long sent = length(ops);
+        try {
+            List<OpResult> results = super.multi(ops);
+            metrics.get(OpType.MULTI).record(start, false, 0, sent, 0);
+            return results;
+        } catch (KeeperException e) {
+            metrics.get(OpType.MULTI).record(start, true, 0, sent, 0);
+            throw e;
+        }
+    }
+
+    @Override
+    public void create(String path, byte[] data, List<ACL> acl, CreateMode createMode, StringCallback cb, Object ctx) {
+        super.create(path, data, acl, createMode,
+                new TimedCallback(metrics.get(OpType.CREATE), path.length() + length(data), cb), ctx);
+    }
+
+    @Override
+    public void delete(String path, int version, VoidCallback cb, Object ctx) {
+        super.delete(path, version, new TimedCallback(metrics.get(OpType.DELETE), path.length(), cb), ctx);
+    }
+
+    @Override
+    public void exists(String path, Watcher watcher, StatCallback cb, Object ctx) {
+        super.exists(path, watcher, new TimedCallback(metrics.get(OpType.EXISTS), path.length(), cb), ctx);
+    }
+
+    @Override
+    public void getACL(String path, Stat stat, ACLCallback cb, Object ctx) {
+        super.getACL(path, stat, new TimedACLCallback(metrics.get(OpType.GET_ACL), path.length(), cb), ctx);
+    }
+
+    @Override
+    public void getChildren(String path, Watcher watcher, Children2Callback cb, Object ctx) {
+        super.getChildren(path, watcher,
+                new TimedChildrenCallback(metrics.get(OpType.GET_CHILDREN), path.length(), cb), ctx);
+    }
+
+    @Override
+    public void getData(String path, Watcher watcher, DataCallback cb, Object ctx) {
+        super.getData(path, watcher, new TimedCallback(metrics.get(OpType.GET_DATA), path.length(), cb), ctx);
+    }
+
+    @Override
+    public void setACL(String path, List<ACL> acl, int version, StatCallback cb, Object ctx) {
+        super.setACL(path, acl, version,
+                new TimedCallback(metrics.get(OpType.SET_ACL), path.length() + length(acl), cb), ctx);
+    }
+
+    @Override
+    public void setData(String path, byte[] data, int version, StatCallback cb, Object ctx) {
+        super.setData(path, data, version,
+                new TimedCallback(metrics.get(OpType.SET_DATA), path.length() + length(data), cb), ctx);
+    }
+
+    @Override
+    public void multi(Iterable<Op> ops, MultiCallback cb, Object ctx) {
+        super.multi(ops, new TimedCallback(metrics.get(OpType.MULTI), length(ops), cb), ctx);
+    }
 
-        return null;
+    /**
+     * @return the {@link RetryPolicy} of this session, with its retry
+     *         counters
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
     }
 
-    public void setRetryLimit(int limit) {
-        this.limit = limit;
+    /**
+     * @return the {@link ZooKeeperMetrics} the calls of this session are
+     *         recorded in
+     */
+    public ZooKeeperMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the address of the server the session is connected to, or null
+     *         if it is not connected
+     */
+    public SocketAddress getServerAddress() {
+        return testableRemoteSocketAddress();
+    }
+
+    /**
+     * @return the zxid of the last change the servers had applied when they
+     *         last answered this session. A server whose answers carry a
+     *         zxid as large has applied every change this session has seen,
+     *         its own writes included.
+     */
+    public long getLastZxid() {
+        return cnxn.getLastZxid();
     }
 
     /**
@@ -252,4 +440,187 @@ public class ZooKeeperRetry extends ZooKeeper {
 
         return false;
     }
+
+    /**
+     * Reads the {@link Stat} of a node after a write against a version was
+     * lost, to tell whether it was applied
+     *
+     * @return the {@link Stat} if the write was applied, or null if it should
+     *         be sent again
+     * @throws KeeperException.NoNodeException     - if the node is gone
+     * @throws KeeperException.BadVersionException - if the node was changed
+     *                                             by someone else
+     */
+    private Stat appliedStat(String path, int version, boolean data) throws KeeperException, InterruptedException {
+        Stat s;
+        try {
+            s = super.exists(path, null);
+        } catch (KeeperException.ConnectionLossException e) {
+            // sent again, and checked again if lost again
+            return null;
+        }
+        if (s == null) {
+            throw new KeeperException.NoNodeException(path);
+        }
+        int current = data ? s.getVersion() : s.getAversion();
+        if (current == version + 1) {
+            return s;
+        }
+        if (current == version) {
+            return null;
+        }
+        throw new KeeperException.BadVersionException(path);
+    }
+
+    private RetryPolicy.Retry start(OpType type, long startNanos, String path)
+            throws KeeperException.ConnectionLossException {
+        try {
+            retryPolicy.checkConnected(path);
+        } catch (KeeperException.ConnectionLossException e) {
+            metrics.get(type).record(startNanos, true, 0, 0, 0);
+            throw e;
+        }
+        return retryPolicy.start();
+    }
+
+    private void record(OpType type, long startNanos, RetryPolicy.Retry retry, boolean failed, long sent,
+                        long received) {
+        metrics.get(type).record(startNanos, failed, retry.getAttempts(), sent, received);
+    }
+
+    private void backoff(RetryPolicy.Retry retry, KeeperException e) throws KeeperException, InterruptedException {
+        if (closed) {
+            throw e;
+        }
+        retry.backoff(e);
+    }
+
+    private static int length(byte[] data) {
+        return data == null ? 0 : data.length;
+    }
+
+    private static long length(List<ACL> acl) {
+        long length = 0;
+        if (acl != null) {
+            for (int i = 0; i < acl.size(); i++) {
+                length += acl.get(i).getId().getId().length();
+            }
+        }
+        return length;
+    }
+
+    private static long namesLength(List<String> names) {
+        long length = 0;
+        if (names != null) {
+            for (int i = 0; i < names.size(); i++) {
+                length += names.get(i).length();
+            }
+        }
+        return length;
+    }
+
+    private static long length(Iterable<Op> ops) {
+        long length = 0;
+        for (Op op : ops) {
+            length += op.getPath().length();
+        }
+        return length;
+    }
+
+    /**
+     * Times an asynchronous call and records it when its reply comes, before
+     * handing the reply on to the callback of the caller
+     */
+    private static class TimedCallback implements StringCallback, VoidCallback, StatCallback, DataCallback,
+            MultiCallback {
+        private final OpMetrics metrics;
+        private final long start = System.nanoTime();
+        private final long sent;
+        final Object callback;
+
+        TimedCallback(OpMetrics metrics, long sent, Object callback) {
+            this.metrics = metrics;
+            this.sent = sent;
+            this.callback = callback;
+        }
+
+        boolean record(int rc, long received) {
+            Code code = Code.get(rc);
+            boolean lost = code == Code.CONNECTIONLOSS;
+            // a missing node is the answer of exists, not an error
+            boolean failed = code != Code.OK && !lost
+                    && !(code == Code.NONODE && metrics.getType() == OpType.EXISTS);
+            metrics.record(start, failed, lost ? 1 : 0, sent, received);
+            return callback != null;
+        }
+
+        @Override
+        public void processResult(int rc, String path, Object ctx, String name) {
+            if (record(rc, name == null ? 0 : name.length())) {
+                ((StringCallback) callback).processResult(rc, path, ctx, name);
+            }
+        }
+
+        @Override
+        public void processResult(int rc, String path, Object ctx) {
+            if (record(rc, 0)) {
+                ((VoidCallback) callback).processResult(rc, path, ctx);
+            }
+        }
+
+        @Override
+        public void processResult(int rc, String path, Object ctx, Stat stat) {
+            if (record(rc, 0)) {
+                ((StatCallback) callback).processResult(rc, path, ctx, stat);
+            }
+        }
+
+        @Override
+        public void processResult(int rc, String path, Object ctx, byte[] data, Stat stat) {
+            if (record(rc, length(data))) {
+                ((DataCallback) callback).processResult(rc, path, ctx, data, stat);
+            }
+        }
+
+        @Override
+        public void processResult(int rc, String path, Object ctx, List<OpResult> opResults) {
+            if (record(rc, 0)) {
+                ((MultiCallback) callback).processResult(rc, path, ctx, opResults);
+            }
+        }
+    }
+
+    /**
+     * A {@link TimedCallback} for getChildren, whose reply has the same
+     * erasure as one of getACL
+     */
+    private static class TimedChildrenCallback extends TimedCallback implements Children2Callback {
+        TimedChildrenCallback(OpMetrics metrics, long sent, Children2Callback callback) {
+            super(metrics, sent, callback);
+        }
+
+        @Override
+        public void processResult(int rc, String path, Object ctx, List<String> children, Stat stat) {
+            if (record(rc, namesLength(children))) {
+                ((Children2Callback) callback).processResult(rc, path, ctx, children, stat);
+            }
+        }
+    }
+
+    /**
+     * A {@link TimedCallback} for getACL, whose reply has the same erasure as
+     * one of getChildren
+     */
+    private static class TimedACLCallback extends TimedCallback implements ACLCallback {
+        TimedACLCallback(OpMetrics metrics, long sent, ACLCallback callback) {
+            super(metrics, sent, callback);
+        }
+
+        @Override
+        public void processResult(int rc, String path, Object ctx, List<ACL> acl, Stat stat) {
+            if (record(rc, length(acl))) {
+                ((ACLCallback) callback).processResult(rc, path, ctx, acl, stat);
+            }
+        }
+    }
 }